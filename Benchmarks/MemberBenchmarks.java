@@ -0,0 +1,420 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks for the core member operations, each run for several roster sizes.
+ *
+ * Every benchmark is warmed up first and then measured over several iterations,
+ * and the average time per operation is printed with its spread. Results of the
+ * measured code are folded into a sink so the JIT cannot remove the work.
+ *
+ * The heapPerMember benchmark instead compares the heap used per member by member
+ * objects and by the columnar member store.
+ *
+ * Usage: java MemberBenchmarks [sizes] [benchmark names]
+ * e.g.   java MemberBenchmarks 1000,100000 lookup,payDue
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberBenchmarks {
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000, 10_000_000};
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    // Operations per iteration, so small rosters are not measured on too few calls
+    private static final int MIN_OPERATIONS = 1_000_000;
+    private static final int MIN_ROWS = 100_000;
+
+    private static final String[] LOCATIONS = {"Khorsane", "Kathmandu", "Pokhara", "Lalitpur", "Biratnagar"};
+    private static final String[] PLANS = {"basic", "standard", "deluxe"};
+    private static final String[] TRAINERS = {"Ram", "Sita", "Hari", "Gita"};
+
+    private static final MemberExporter EXPORTER = new MemberExporter();
+
+    private static long sink;
+
+    /**
+     * One benchmark, run once per iteration against a roster.
+     */
+    private interface Benchmark {
+        /**
+         * Runs one iteration and returns the number of operations it performed.
+         */
+        long run(MemberRepository members, int[] ids);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0 ? parseSizes(args[0]) : DEFAULT_SIZES;
+        String only = args.length > 1 ? args[1] : "";
+
+        for (int size : sizes) {
+            if (only.isEmpty() || List.of(only.split(",")).contains("heapPerMember")) {
+                System.out.printf(Locale.ROOT, "%n== %,d members ==%n", size);
+                heapPerMember(size);
+            }
+            if (only.equals("heapPerMember")) {
+                continue;
+            }
+            MemberRepository members = createRoster(size);
+            int[] ids = shuffledIds(size, Math.max(size, MIN_OPERATIONS));
+            System.out.printf(Locale.ROOT, "%n== %,d members ==%n", size);
+
+            run("lookup", only, members, ids, MemberBenchmarks::lookup);
+            run("markAttendance", only, members, ids, MemberBenchmarks::markAttendance);
+            run("checkInConcurrent", only, members, ids, MemberBenchmarks::checkInConcurrent);
+            run("payDue", only, members, ids, MemberBenchmarks::payDue);
+            run("saveRowPrintf", only, members, ids, MemberBenchmarks::saveRowsPrintf);
+            run("saveRow", only, members, ids, MemberBenchmarks::saveRows);
+            run("saveRowGzip", only, members, ids, MemberBenchmarks::saveRowsGzip);
+            run("displayText", only, members, ids, MemberBenchmarks::displayText);
+            run("rosterReport", only, members, ids, MemberBenchmarks::rosterReport);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void run(String name, String only, MemberRepository members, int[] ids, Benchmark benchmark) {
+        if (!only.isEmpty() && !List.of(only.split(",")).contains(name)) {
+            return;
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            benchmark.run(members, ids);
+        }
+
+        double[] nanosPerOp = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long operations = benchmark.run(members, ids);
+            nanosPerOp[i] = (double) (System.nanoTime() - start) / operations;
+        }
+
+        double mean = 0;
+        for (double value : nanosPerOp) {
+            mean += value;
+        }
+        mean /= nanosPerOp.length;
+        double variance = 0;
+        for (double value : nanosPerOp) {
+            variance += (value - mean) * (value - mean);
+        }
+        double deviation = Math.sqrt(variance / (nanosPerOp.length - 1));
+        System.out.printf(Locale.ROOT, "%-20s %12.1f ns/op  +- %8.1f  (%,.0f ops/s)%n",
+                          name, mean, deviation, 1e9 / mean);
+    }
+
+    // Member lookup by ID in random order
+    private static long lookup(MemberRepository members, int[] ids) {
+        long found = 0;
+        for (int id : ids) {
+            found += members.findById(id).getAttendance();
+        }
+        sink += found;
+        return ids.length;
+    }
+
+    // Check-ins of members that are already looked up, in random order
+    private static long markAttendance(MemberRepository members, int[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            members.get(ids[i] - 1).markAttendance();
+        }
+        sink += members.get(0).getAttendance();
+        return ids.length;
+    }
+
+    // Check-ins through the bulk check-in path from one thread per processor
+    private static long checkInConcurrent(MemberRepository members, int[] ids) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicLong checkedIn = new AtomicLong();
+        int chunk = (ids.length + threads - 1) / threads;
+        for (int t = 0; t < threads; t++) {
+            final int from = Math.min(ids.length, t * chunk);
+            final int to = Math.min(ids.length, from + chunk);
+            executor.execute(() -> {
+                int[] part = Arrays.copyOfRange(ids, from, to);
+                checkedIn.addAndGet(BulkCheckIn.checkIn(members, part).getCheckedIn());
+                done.countDown();
+            });
+        }
+        try {
+            done.await();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink += checkedIn.get();
+        return ids.length;
+    }
+
+    // Payments of premium members, starting again once a member has paid in full
+    private static long payDue(MemberRepository members, int[] ids) {
+        long operations = 0;
+        for (int id : ids) {
+            GymMember member = members.get(id - 1);
+            if (member instanceof PremiumMember) {
+                PremiumMember premMember = (PremiumMember) member;
+                if (premMember.getIsFullPayment()) {
+                    premMember.revertPremiumMember();
+                }
+                sink += premMember.payDueAmount(1000).length();
+                operations++;
+            }
+        }
+        return Math.max(1, operations);
+    }
+
+    // Rows of MemberDetails.txt formatted with printf, as saves did before MemberExporter,
+    // encoded to UTF-8 and counted
+    private static long saveRowsPrintf(MemberRepository members, int[] ids) {
+        CountingStream counter = new CountingStream();
+        PrintWriter writer = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(counter, StandardCharsets.UTF_8), 1 << 16));
+        int size = members.size();
+        int rows = Math.max(size, MIN_ROWS);
+        for (int i = 0; i < rows; i++) {
+            printfRow(writer, members.get(i % size));
+        }
+        writer.flush();
+        sink += counter.count;
+        return rows;
+    }
+
+    // Rows of MemberDetails.txt encoded by MemberExporter into a channel that only counts bytes
+    private static long saveRows(MemberRepository members, int[] ids) {
+        return exportRows(members, false);
+    }
+
+    // Rows of MemberDetails.txt encoded and compressed by MemberExporter
+    private static long saveRowsGzip(MemberRepository members, int[] ids) {
+        return exportRows(members, true);
+    }
+
+    private static long exportRows(MemberRepository members, boolean gzip) {
+        List<GymMember> roster = members.getAll();
+        CountingStream counter = new CountingStream();
+        long rows = 0;
+        try {
+            while (rows < MIN_ROWS) {
+                EXPORTER.write(counter, roster, gzip, written -> true);
+                rows += roster.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        sink += counter.count;
+        return rows;
+    }
+
+    // Row layout of MemberDetails.txt, the reference MemberExporter writes byte for byte
+    static void printfRow(PrintWriter writer, GymMember member) {
+        String plan = "";
+        double price = 0.0;
+        String fullPayment = "N/A";
+        String discountAmount = "N/A";
+        String netAmountPaid = "N/A";
+
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            plan = regMember.getPlan();
+            price = regMember.getPrice();
+        } else if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            plan = "premium";
+            price = premMember.getPremiumCharge();
+            fullPayment = premMember.getIsFullPayment() ? "Yes" : "No";
+            discountAmount = String.valueOf(premMember.getDiscountAmount());
+            netAmountPaid = String.valueOf(premMember.getPaidAmount());
+        }
+
+        writer.printf("%-5s %-20s %-20s %-15s %-35s %-30s %-10s %-10.1f %-20d %-20.2f %-20s %-20s %-20s %-20s\n",
+                      member.getId(), member.getName(), member.getLocation(), member.getPhone(),
+                      member.getEmail(), member.getMembershipStartDate(), plan, price,
+                      member.getAttendance(), member.getLoyaltyPoints(),
+                      member.getActiveStatus() ? "Active" : "Inactive", fullPayment, discountAmount, netAmountPaid);
+    }
+
+    // Details text of the Display Members window
+    private static long displayText(MemberRepository members, int[] ids) {
+        StringBuilder displayText = new StringBuilder();
+        int size = members.size();
+        int rows = Math.max(size, MIN_ROWS);
+        for (int i = 0; i < rows; i++) {
+            GymGUI.appendMemberDetails(displayText, members.get(i % size));
+            if (displayText.length() > 1 << 20) {
+                sink += displayText.length();
+                displayText.setLength(0);
+            }
+        }
+        sink += displayText.length();
+        return rows;
+    }
+
+    // Group report of the whole roster, counted per member
+    private static long rosterReport(MemberRepository members, int[] ids) {
+        RosterReport report = RosterReport.of(members);
+        sink += report.getTotal().getAttendanceTotal();
+        return members.size();
+    }
+
+    // Heap used by member objects with an ID index and by the same members in columns
+    private static void heapPerMember(int size) {
+        long before = usedHeap();
+        List<GymMember> members = createDistinctMembers(size);
+        IntHashMap<GymMember> membersById = new IntHashMap<>(size);
+        for (GymMember member : members) {
+            membersById.put(member.getId(), member);
+        }
+        long objectBytes = usedHeap() - before;
+
+        MemberColumns columns = toColumns(members);
+        members = null;
+        membersById = null;
+        long columnBytes = usedHeap() - before;
+
+        sink += columns.size();
+        System.out.printf(Locale.ROOT, "%-20s %12.1f B/member objects, %.1f B/member columns%n",
+                          "heapPerMember", (double) objectBytes / size, (double) columnBytes / size);
+    }
+
+    // Copies in a separate method, so no loop variable keeps the members reachable
+    private static MemberColumns toColumns(List<GymMember> members) {
+        MemberColumns columns = new MemberColumns(members.size());
+        for (GymMember member : members) {
+            columns.add(member);
+        }
+        return columns;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Creates members like createRoster(), but with every string a separate copy
+     * as it would be when members are read from a file.
+     */
+    static List<GymMember> createDistinctMembers(int size) {
+        List<GymMember> members = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            String location = new String(LOCATIONS[id % LOCATIONS.length]);
+            String dob = (id % 28 + 1) + "/January/" + (1970 + id % 40);
+            String startDate = (id % 28 + 1) + "/March/2024";
+            GymMember member;
+            if (id % 3 == 0) {
+                member = new PremiumMember(id, "Member " + id, location, "98" + (10_000_000 + id), "member" + id + "@gym.com",
+                                           new String("Female"), dob, startDate, new String(TRAINERS[id % TRAINERS.length]));
+            } else {
+                member = new RegularMember(id, "Member " + id, location, "98" + (10_000_000 + id), "member" + id + "@gym.com",
+                                           new String("Male"), dob, startDate, new String("Referral"));
+                RegularMember regMember = (RegularMember) member;
+                String plan = new String(PLANS[id % PLANS.length]);
+                regMember.restorePlan(plan, regMember.getPlanPrice(plan), false, "");
+            }
+            member.activateMembership();
+            members.add(member);
+        }
+        return members;
+    }
+
+    /**
+     * Creates a roster with IDs 1 to size, every third member premium.
+     * Strings are shared between members so large rosters fit in memory.
+     */
+    static MemberRepository createRoster(int size) {
+        MemberRepository members = new MemberRepository();
+        for (int id = 1; id <= size; id++) {
+            String location = LOCATIONS[id % LOCATIONS.length];
+            GymMember member;
+            if (id % 3 == 0) {
+                member = new PremiumMember(id, "Member", location, "9800000000", "member@gym.com",
+                                           "Female", "1/January/2000", "1/January/2024", TRAINERS[id % TRAINERS.length]);
+            } else {
+                member = new RegularMember(id, "Member", location, "9800000000", "member@gym.com",
+                                           "Male", "1/January/2000", "1/January/2024", "Referral");
+                RegularMember regMember = (RegularMember) member;
+                String plan = PLANS[id % PLANS.length];
+                regMember.restorePlan(plan, regMember.getPlanPrice(plan), false, "");
+            }
+            member.activateMembership();
+            members.add(member);
+        }
+        return members;
+    }
+
+    // IDs 1 to size repeated to the requested count, in a fixed random order
+    private static int[] shuffledIds(int size, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i % size + 1;
+        }
+        Random random = new Random(42);
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+        return ids;
+    }
+
+    private static int[] parseSizes(String text) {
+        String[] parts = text.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+        }
+        return sizes;
+    }
+
+    /**
+     * Stream and channel that discard everything and only count the bytes.
+     */
+    private static class CountingStream extends OutputStream implements WritableByteChannel {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public int write(ByteBuffer buffer) {
+            int length = buffer.remaining();
+            buffer.position(buffer.limit());
+            count += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+}
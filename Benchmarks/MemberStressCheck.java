@@ -0,0 +1,182 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stress check of concurrent member changes.
+ *
+ * Many threads check in, pay and upgrade the plans of a small shared roster through the
+ * member service, so most operations meet another thread on the same member. Every thread
+ * counts the operations the service accepted for each member, and afterwards every member
+ * must show exactly those: attendance equal to its accepted check-ins, five loyalty points
+ * per check-in, paid paisa equal to its accepted payments, and plans upgraded only once the
+ * member was eligible. The ledger, the roster statistics and the upgrade candidates,
+ * which are kept up to date by the member listeners, must agree with the members.
+ *
+ * Any difference is printed and the program fails, so it can run as a check in a script.
+ *
+ * Usage: java MemberStressCheck [members] [threads] [operations per thread]
+ * e.g.   java MemberStressCheck 1000 16 200000
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberStressCheck {
+    private static final int DEFAULT_MEMBERS = 1_000;
+    private static final int DEFAULT_OPERATIONS = 200_000;
+    private static final String[] PLANS = {"basic", "standard", "deluxe"};
+    // Differences printed before giving up
+    private static final int MAX_REPORTED = 20;
+
+    private final int size;
+    private final MemberRepository members;
+    private final MemberService service;
+
+    // Operations the service accepted, per member ID
+    private final AtomicIntegerArray checkIns;
+    private final AtomicLongArray paidPaisa;
+    private final AtomicIntegerArray upgrades;
+
+    private final List<String> differences = new ArrayList<>();
+
+    private MemberStressCheck(int size) {
+        this.size = size;
+        this.members = MemberBenchmarks.createRoster(size);
+        this.service = new MemberService(members);
+        this.checkIns = new AtomicIntegerArray(size + 1);
+        this.paidPaisa = new AtomicLongArray(size + 1);
+        this.upgrades = new AtomicIntegerArray(size + 1);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MEMBERS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                                       : Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_OPERATIONS;
+
+        MemberStressCheck check = new MemberStressCheck(size);
+        long start = System.nanoTime();
+        check.run(threads, operations);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%,d operations on %,d members from %d threads in %.2f s (%,.0f ops/s)%n",
+                          (long) threads * operations, size, threads, seconds, threads * operations / seconds);
+
+        check.verify();
+        if (!check.differences.isEmpty()) {
+            for (String difference : check.differences) {
+                System.out.println(difference);
+            }
+            throw new IllegalStateException("Stress check failed");
+        }
+        System.out.println("Every member and total matches the accepted operations");
+    }
+
+    // Runs the threads together from a start signal and waits for all of them
+    private void run(int threads, int operations) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final long seed = 42 + t;
+            workers[t] = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                work(new Random(seed), operations);
+            }, "stress-" + t);
+            workers[t].start();
+        }
+        ready.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    // Six in ten operations are check-ins, two are payments and two are plan upgrades
+    private void work(Random random, int operations) {
+        for (int i = 0; i < operations; i++) {
+            int id = 1 + random.nextInt(size);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                if (service.checkIn(id).isOk()) {
+                    checkIns.incrementAndGet(id);
+                }
+            } else if (operation < 8) {
+                long paisa = (1 + random.nextInt(50)) * Money.PAISA_PER_RUPEE;
+                if (service.payDueAmount(id, Money.toAmount(paisa)).isOk()) {
+                    paidPaisa.addAndGet(id, paisa);
+                }
+            } else {
+                if (service.upgradePlan(id, PLANS[random.nextInt(PLANS.length)]).isOk()) {
+                    upgrades.incrementAndGet(id);
+                }
+            }
+        }
+    }
+
+    private void verify() {
+        long attendanceTotal = 0;
+        long collectedPaisa = 0;
+        long planRevenuePaisa = 0;
+        int eligible = 0;
+        PaymentLedger ledger = service.getLedger();
+
+        for (int id = 1; id <= size; id++) {
+            GymMember member = members.findById(id);
+            int expectedCheckIns = checkIns.get(id);
+            attendanceTotal += expectedCheckIns;
+            expect(member.getAttendance() == expectedCheckIns,
+                   "member " + id + " attendance " + member.getAttendance() + ", accepted check-ins " + expectedCheckIns);
+            expect(member.getLoyaltyPoints() == 5.0 * expectedCheckIns,
+                   "member " + id + " loyalty points " + member.getLoyaltyPoints() + ", expected " + 5.0 * expectedCheckIns);
+
+            if (member instanceof PremiumMember) {
+                PremiumMember premMember = (PremiumMember) member;
+                long expectedPaid = paidPaisa.get(id);
+                collectedPaisa += expectedPaid;
+                planRevenuePaisa += premMember.getPremiumChargePaisa();
+                expect(premMember.getPaidPaisa() == expectedPaid,
+                       "member " + id + " paid " + premMember.getPaidPaisa() + " paisa, accepted payments " + expectedPaid);
+                expect(ledger.getPaidPaisa(id) == expectedPaid,
+                       "member " + id + " ledger paid " + ledger.getPaidPaisa(id) + " paisa, accepted payments " + expectedPaid);
+                expect(premMember.getIsFullPayment() == (expectedPaid == premMember.getPremiumChargePaisa()),
+                       "member " + id + " full payment flag does not match " + expectedPaid + " paisa paid");
+            } else {
+                RegularMember regMember = (RegularMember) member;
+                boolean isEligible = expectedCheckIns >= regMember.getAttendanceLimit();
+                if (isEligible) {
+                    eligible++;
+                }
+                planRevenuePaisa += Money.toPaisa(regMember.getPrice());
+                expect(regMember.getIsEligibleForUpgrade() == isEligible,
+                       "member " + id + " eligibility does not match " + expectedCheckIns + " check-ins");
+                expect(upgrades.get(id) == 0 || isEligible,
+                       "member " + id + " was upgraded " + upgrades.get(id) + " times without being eligible");
+                expect(regMember.getPrice() == regMember.getPlanPrice(regMember.getPlan()),
+                       "member " + id + " price " + regMember.getPrice() + " does not match plan " + regMember.getPlan());
+            }
+        }
+
+        RosterStatistics statistics = service.getStatistics();
+        expect(statistics.getAttendanceTotal() == attendanceTotal,
+               "statistics attendance " + statistics.getAttendanceTotal() + ", accepted check-ins " + attendanceTotal);
+        expect(statistics.getPlanRevenuePaisa() == planRevenuePaisa,
+               "statistics plan revenue " + statistics.getPlanRevenuePaisa() + " paisa, members add up to " + planRevenuePaisa);
+        expect(statistics.getEligibleForUpgradeCount() == eligible,
+               "statistics eligible " + statistics.getEligibleForUpgradeCount() + ", members eligible " + eligible);
+        expect(service.getUpgradeCandidates().getCount() == eligible,
+               "upgrade candidates " + service.getUpgradeCandidates().getCount() + ", members eligible " + eligible);
+        expect(ledger.getCollectedPaisa() == collectedPaisa,
+               "ledger collected " + ledger.getCollectedPaisa() + " paisa, accepted payments " + collectedPaisa);
+    }
+
+    private void expect(boolean condition, String difference) {
+        if (!condition && differences.size() < MAX_REPORTED) {
+            differences.add(difference);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * History of the days on which every member visited the gym.
+ *
+ * The history listens to member changes and adds today to the member's VisitCalendar on every
+ * check-in, so markAttendance itself stays unchanged. The attendance counter says how often a
+ * member came; the history also answers when: the last visit, visits in the last 30 days,
+ * the current streak and which active members have lapsed.
+ *
+ * Reverting a member resets its attendance counter but keeps its history, as the visits happened.
+ * The history is kept in its own file ("AttendanceHistory.dat"), saved with save() and read
+ * back with load(). A SnapshotCompactor given the history also saves it in the background,
+ * so a crash loses at most the visit days since its last check.
+ *
+ * @author Sadikshya Karki
+ */
+public class AttendanceHistory implements MemberListener {
+    /**
+     * Default history file name
+     */
+    public static final String FILE_NAME = "AttendanceHistory.dat";
+
+    private static final int MAGIC = 0x47594D48; // "GYMH"
+    private static final short VERSION = 1;
+
+    // How the days of one member are stored in the file
+    private static final byte DAYS_AS_GAPS = 0;
+    private static final byte DAYS_AS_BITMAP = 1;
+
+    private static final OperationTimer SAVE_TIMER = OperationMetrics.timer("saveAttendanceHistory");
+    private static final OperationTimer LOAD_TIMER = OperationMetrics.timer("loadAttendanceHistory");
+
+    private final MemberRepository members;
+    private final Clock clock;
+    private final IntHashMap<VisitCalendar> calendars;
+    private final StampedLock lock;
+    private final LongAdder checkIns;
+
+    /**
+     * Constructor to create an empty history over the members of a repository
+     * and register it for every later check-in.
+     *
+     * @param members       Repository holding the members
+     */
+    public AttendanceHistory(MemberRepository members) {
+        this(members, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor to create an empty history that takes today's date from a clock.
+     *
+     * @param members       Repository holding the members
+     * @param clock         Clock giving the date of a check-in
+     */
+    public AttendanceHistory(MemberRepository members, Clock clock) {
+        this.members = members;
+        this.clock = clock;
+        this.calendars = new IntHashMap<>();
+        this.lock = new StampedLock();
+        this.checkIns = new LongAdder();
+        members.addListener(this);
+    }
+
+    /**
+     * Adds today to the calendar of a member who checked in.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        if (change == MemberChange.ATTENDANCE) {
+            calendar(member.getId()).add(today());
+            checkIns.increment();
+        }
+    }
+
+    /**
+     * Returns the number of check-ins added since the history was created.
+     * A different number than at the last save means the history has changed since.
+     */
+    public long getCheckInCount() {
+        return checkIns.sum();
+    }
+
+    /**
+     * Returns today's epoch day according to the history's clock.
+     */
+    public int today() {
+        return MemberDates.toEpochDay(LocalDate.now(clock));
+    }
+
+    /**
+     * Returns the number of days a member visited from one date to another, both included.
+     *
+     * @param id        ID of the member
+     * @param from      First date
+     * @param to        Last date
+     */
+    public int getVisits(int id, LocalDate from, LocalDate to) {
+        VisitCalendar calendar = find(id);
+        return calendar == null ? 0 : calendar.count(MemberDates.toEpochDay(from), MemberDates.toEpochDay(to));
+    }
+
+    /**
+     * Returns the number of days a member visited in the last days up to today.
+     *
+     * @param id        ID of the member
+     * @param days      Number of days, today included
+     */
+    public int getRecentVisits(int id, int days) {
+        VisitCalendar calendar = find(id);
+        int today = today();
+        return calendar == null ? 0 : calendar.count(today - days + 1, today);
+    }
+
+    /**
+     * Returns the date of a member's last visit, or null if the member never visited.
+     *
+     * @param id        ID of the member
+     */
+    public LocalDate getLastVisit(int id) {
+        VisitCalendar calendar = find(id);
+        int day = calendar == null ? MemberDates.NO_DATE : calendar.lastDay();
+        return day == MemberDates.NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Returns the number of days in a row a member has visited, up to today,
+     * or up to yesterday if the member has not visited yet today.
+     *
+     * @param id        ID of the member
+     */
+    public int getCurrentStreak(int id) {
+        VisitCalendar calendar = find(id);
+        if (calendar == null) {
+            return 0;
+        }
+        int today = today();
+        return calendar.contains(today) ? calendar.streakEndingAt(today) : calendar.streakEndingAt(today - 1);
+    }
+
+    /**
+     * Returns the active members who have not visited in the last days, in insertion order.
+     *
+     * @param days      Number of days without a visit, today included
+     * @param limit     Maximum number of members to return
+     */
+    public List<GymMember> findLapsed(int days, int limit) {
+        List<GymMember> lapsed = new ArrayList<>();
+        int today = today();
+        for (GymMember member : members) {
+            if (lapsed.size() == limit) {
+                break;
+            }
+            if (!member.getActiveStatus()) {
+                continue;
+            }
+            VisitCalendar calendar = find(member.getId());
+            if (calendar == null || calendar.count(today - days + 1, today) == 0) {
+                lapsed.add(member);
+            }
+        }
+        return lapsed;
+    }
+
+    /**
+     * Writes the history to a file, replacing any existing file.
+     * It is written to a temporary file and forced to disk first, then moved over the old one,
+     * so a crash leaves either the old or the new history.
+     *
+     * @param file      History file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File file) throws IOException {
+        long start = System.nanoTime();
+        // Calendars of the members in the repository, in insertion order
+        List<GymMember> visitors = new ArrayList<>();
+        List<VisitCalendar> saved = new ArrayList<>();
+        for (GymMember member : members) {
+            VisitCalendar calendar = find(member.getId());
+            if (calendar != null) {
+                visitors.add(member);
+                saved.add(calendar);
+            }
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        boolean moved = false;
+        try {
+            FileOutputStream fileOut = new FileOutputStream(temp);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(saved.size());
+                for (int i = 0; i < saved.size(); i++) {
+                    out.writeInt(visitors.get(i).getId());
+                    writeDays(out, saved.get(i).toDays());
+                }
+                out.flush();
+                fileOut.getChannel().force(true);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                temp.delete();
+            }
+            SAVE_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Adds the visits saved in a file to the history.
+     *
+     * @param file      History file to read
+     * @throws IOException if the file cannot be read or is not a history file
+     */
+    public void load(File file) throws IOException {
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an attendance history file: " + file.getName());
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported attendance history version: " + version);
+            }
+            int calendarCount = in.readInt();
+            for (int i = 0; i < calendarCount; i++) {
+                readDays(in, calendar(in.readInt()));
+            }
+        } catch (EOFException e) {
+            throw new IOException("Attendance history file is truncated: " + file.getName(), e);
+        } finally {
+            LOAD_TIMER.record(start);
+        }
+    }
+
+    // Calendar of a member, created on its first visit
+    private VisitCalendar calendar(int id) {
+        VisitCalendar calendar = find(id);
+        if (calendar != null) {
+            return calendar;
+        }
+        long stamp = lock.writeLock();
+        try {
+            VisitCalendar created = new VisitCalendar();
+            VisitCalendar existing = calendars.putIfAbsent(id, created);
+            return existing != null ? existing : created;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private VisitCalendar find(int id) {
+        long stamp = lock.tryOptimisticRead();
+        VisitCalendar calendar = null;
+        try {
+            calendar = calendars.get(id);
+        } catch (RuntimeException e) {
+            // The map was being resized while it was read, read it again under the lock
+            stamp = 0;
+        }
+        if (lock.validate(stamp)) {
+            return calendar;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return calendars.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Days of one member as the first day and the gaps between days, or as a bitmap
+    // of 64-day words for frequent visitors, whichever is smaller
+    private static void writeDays(DataOutputStream out, int[] days) throws IOException {
+        int gapBytes = 0;
+        for (int i = 0; i < days.length; i++) {
+            gapBytes += varIntSize(i == 0 ? days[0] : days[i] - days[i - 1]);
+        }
+        int firstWord = days.length == 0 ? 0 : Math.floorDiv(days[0], 64);
+        int wordCount = days.length == 0 ? 0 : Math.floorDiv(days[days.length - 1], 64) - firstWord + 1;
+
+        if ((long) wordCount * Long.BYTES < gapBytes) {
+            long[] words = new long[wordCount];
+            for (int day : days) {
+                int bit = day - firstWord * 64;
+                words[bit >>> 6] |= 1L << bit;
+            }
+            out.writeByte(DAYS_AS_BITMAP);
+            writeVarInt(out, firstWord);
+            writeVarInt(out, wordCount);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        } else {
+            out.writeByte(DAYS_AS_GAPS);
+            writeVarInt(out, days.length);
+            for (int i = 0; i < days.length; i++) {
+                writeVarInt(out, i == 0 ? days[0] : days[i] - days[i - 1]);
+            }
+        }
+    }
+
+    private static void readDays(DataInputStream in, VisitCalendar calendar) throws IOException {
+        byte kind = in.readByte();
+        if (kind == DAYS_AS_BITMAP) {
+            int firstWord = readVarInt(in);
+            int wordCount = readVarInt(in);
+            for (int i = 0; i < wordCount; i++) {
+                long word = in.readLong();
+                while (word != 0) {
+                    calendar.add((firstWord + i) * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        } else if (kind == DAYS_AS_GAPS) {
+            int dayCount = readVarInt(in);
+            int day = 0;
+            for (int i = 0; i < dayCount; i++) {
+                day = i == 0 ? readVarInt(in) : day + readVarInt(in);
+                calendar.add(day);
+            }
+        } else {
+            throw new IOException("Malformed attendance history file");
+        }
+    }
+
+    private static int varIntSize(int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        return zigzag == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(zigzag)) / 7;
+    }
+
+    // Zigzag encoded so the first day may be negative, then 7 bits per byte
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed attendance history file");
+    }
+}
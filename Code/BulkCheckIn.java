@@ -0,0 +1,198 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Checks in many members at once, for example a burst of turnstile badge scans.
+ *
+ * Every ID gets the same treatment as the Mark Attendance button: unknown IDs and
+ * inactive memberships are rejected, active members have markAttendance() applied
+ * (attendance, loyalty points and the regular member upgrade eligibility).
+ * The outcome of each scan is returned as one status byte, so a large batch
+ * produces a single compact array instead of an object per scan.
+ *
+ * Several batches may run at the same time on different threads.
+ *
+ * @author Sadikshya Karki
+ */
+public class BulkCheckIn {
+    /**
+     * Status of a scan whose member was checked in
+     */
+    public static final byte CHECKED_IN = 0;
+    /**
+     * Status of a scan whose ID is not a member
+     */
+    public static final byte NOT_FOUND = 1;
+    /**
+     * Status of a scan whose member's membership is not active
+     */
+    public static final byte NOT_ACTIVE = 2;
+
+    private BulkCheckIn() {
+    }
+
+    /**
+     * Checks in every ID of the stream in order.
+     *
+     * @param members       Repository holding the members
+     * @param ids           Scanned member IDs
+     * @return Status of every scan and totals
+     */
+    public static Result checkIn(MemberRepository members, IntStream ids) {
+        return checkIn(members, ids.toArray());
+    }
+
+    /**
+     * Checks in every ID of the array in order.
+     * An ID that appears several times is checked in several times.
+     *
+     * @param members       Repository holding the members
+     * @param ids           Scanned member IDs
+     * @return Status of every scan and totals
+     */
+    public static Result checkIn(MemberRepository members, int[] ids) {
+        long start = System.nanoTime();
+        byte[] statuses = new byte[ids.length];
+        int checkedIn = 0;
+        int notFound = 0;
+        int notActive = 0;
+        int newlyEligible = 0;
+
+        for (int i = 0; i < ids.length; i++) {
+            GymMember member = members.findById(ids[i]);
+            if (member == null) {
+                statuses[i] = NOT_FOUND;
+                notFound++;
+                continue;
+            }
+
+            // The member's lock keeps the active check and the check-in together
+            synchronized (member) {
+                if (!member.getActiveStatus()) {
+                    statuses[i] = NOT_ACTIVE;
+                    notActive++;
+                } else {
+                    boolean wasEligible = isEligible(member);
+                    member.markAttendance();
+                    if (!wasEligible && isEligible(member)) {
+                        newlyEligible++;
+                    }
+                    statuses[i] = CHECKED_IN;
+                    checkedIn++;
+                }
+            }
+        }
+
+        return new Result(statuses, checkedIn, notFound, notActive, newlyEligible, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads scanned IDs from a text file.
+     * IDs may be separated by new lines, spaces, commas or semicolons.
+     *
+     * @param file      File with the scanned IDs
+     * @return IDs in file order
+     * @throws IOException if the file cannot be read or holds something that is not an ID
+     */
+    public static int[] readIds(File file) throws IOException {
+        int[] ids = new int[1024];
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16)) {
+            long value = 0;
+            boolean inNumber = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c >= '0' && c <= '9') {
+                    value = value * 10 + (c - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        throw new IOException("ID is too large in " + file.getName());
+                    }
+                    inNumber = true;
+                } else if (c == ',' || c == ';' || Character.isWhitespace(c)) {
+                    if (inNumber) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = (int) value;
+                        value = 0;
+                        inNumber = false;
+                    }
+                } else {
+                    throw new IOException("Invalid character '" + (char) c + "' in " + file.getName());
+                }
+            }
+            if (inNumber) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count + 1);
+                }
+                ids[count++] = (int) value;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static boolean isEligible(GymMember member) {
+        return member instanceof RegularMember && ((RegularMember) member).getIsEligibleForUpgrade();
+    }
+
+    /**
+     * Outcome of a bulk check-in.
+     */
+    public static class Result {
+        private final byte[] statuses;
+        private final int checkedIn;
+        private final int notFound;
+        private final int notActive;
+        private final int newlyEligible;
+        private final long elapsedNanos;
+
+        Result(byte[] statuses, int checkedIn, int notFound, int notActive, int newlyEligible, long elapsedNanos) {
+            this.statuses = statuses;
+            this.checkedIn = checkedIn;
+            this.notFound = notFound;
+            this.notActive = notActive;
+            this.newlyEligible = newlyEligible;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Accessor (Getter) methods to retrieve the outcome
+        /**
+         * Returns the status of every scan in the order of the IDs
+         * (CHECKED_IN, NOT_FOUND or NOT_ACTIVE).
+         */
+        public byte[] getStatuses() {
+            return statuses;
+        }
+        public int getScanCount() {
+            return statuses.length;
+        }
+        public int getCheckedIn() {
+            return checkedIn;
+        }
+        public int getNotFound() {
+            return notFound;
+        }
+        public int getNotActive() {
+            return notActive;
+        }
+        /**
+         * Returns the number of regular members who became eligible for an upgrade in this batch.
+         */
+        public int getNewlyEligible() {
+            return newlyEligible;
+        }
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        /**
+         * Returns the throughput of the batch in scans per second.
+         */
+        public double getScansPerSecond() {
+            return elapsedNanos == 0 ? 0 : statuses.length * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Snapshot file the name, phone and email of lazily loaded members are read from.
+ *
+ * A lazy snapshot load keeps only each member's numbers, codes and dates in memory, along with
+ * the file offset of its name. Name, phone and email are read from the file the first time they
+ * are needed, with one positional read of the record, so most members of a large roster never
+ * hold these strings at all.
+ *
+ * The file stays open for as long as a member may read from it. It is opened with the default
+ * file sharing, so a new snapshot can still be moved over it; the members keep reading
+ * the old contents from the open file.
+ *
+ * Reads are positional, so any number of threads can read at once.
+ *
+ * @author Sadikshya Karki
+ */
+public class ColdFieldStore {
+    private static final int FIRST_READ_SIZE = 256;
+
+    private final FileChannel channel;
+
+    /**
+     * Constructor to open a snapshot file for reading.
+     *
+     * @param file      Snapshot file
+     * @throws IOException if the file cannot be opened
+     */
+    public ColdFieldStore(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Reads the name, phone and email of a member record.
+     *
+     * @param offset        File offset of the record's name
+     * @return Name, phone and email, in that order
+     * @throws IOException if the file cannot be read or the record is not complete
+     */
+    public String[] read(long offset) throws IOException {
+        int size = FIRST_READ_SIZE;
+        while (true) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) >= 0) {
+            }
+            boolean endOfFile = buffer.hasRemaining();
+            buffer.flip();
+            try {
+                String name = getString(buffer);
+                skipString(buffer); // location, written in full or as a dictionary code
+                String phone = getString(buffer);
+                String email = getString(buffer);
+                return new String[] { name, phone, email };
+            } catch (BufferUnderflowException e) {
+                if (endOfFile) {
+                    throw new IOException("Snapshot record is truncated at offset " + offset);
+                }
+                size *= 4;
+            }
+        }
+    }
+
+    /**
+     * Closes the file. Members that have not read their fields yet cannot read them afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Same layout as MemberSnapshot: a byte length and UTF-8 bytes, -1 for null, below -1 a code
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
@@ -13,25 +13,38 @@ import javax.swing.JOptionPane;
 import javax.swing.Box;
 import javax.swing.JTextArea;
 import javax.swing.JFileChooser;
+import javax.swing.JTable;
+import javax.swing.JList;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import java.awt.BorderLayout;
 import java.awt.GridLayout;
 import java.awt.FlowLayout;
 import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Color;
 
-import java.util.ArrayList;
-
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import java.util.List;
+
+import java.time.LocalDate;
+import java.time.Month;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Graphical User Interface(GUI) for managing gym members.
@@ -42,9 +55,35 @@ import java.io.IOException;
  */
 public class GymGUI extends JFrame {
     /**
-     * List to store gym members
+     * Repository to store gym members and look them up by ID
+     */
+    private MemberRepository members;
+    
+    /**
+     * Member operations shared with the HTTP check-in server
+     */
+    private MemberService service;
+    
+    /**
+     * Journal recording every member change since the last snapshot
+     */
+    private MemberJournal journal;
+    
+    /**
+     * Compactor saving a snapshot in the background as the journal grows, null without a journal
+     */
+    private SnapshotCompactor compactor;
+    
+    /**
+     * HTTP server sharing the members with kiosks, null if not started
      */
-    private ArrayList<GymMember> members;
+    private MemberHttpServer httpServer;
+    
+    // Running background saves and whether another save was requested meanwhile
+    private ProgressTask<Boolean> saveTextTask, saveSnapshotTask;
+    // Reused by every save of MemberDetails.txt, which run one at a time
+    private final MemberExporter exporter = new MemberExporter();
+    private boolean saveTextAgain, saveSnapshotAgain;
     
     // Text Fields
     private JTextField idField, nameField, locationField, phoneField, emailField;
@@ -69,14 +108,151 @@ public class GymGUI extends JFrame {
      * It sets up the title, default close operation, UI components and location of the frame.
      */
     public GymGUI() {
-        members = new ArrayList<>();
+        members = new MemberRepository();
+        restoreMembers();
+        service = openService();
+        loadAttendanceHistory();
         setTitle("S-Gym & Fitness");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter(){
+            public void windowClosing(WindowEvent e){
+                if (httpServer != null) {
+                    httpServer.stop(1);
+                }
+                closeJournal();
+                saveAttendanceHistory();
+                closeLedger();
+            }
+        });
         setupUI();
         pack();
         setLocationRelativeTo(null);
     }
     
+    /**
+     * Restores the members saved in the last snapshot "MemberDetails.dat" and replays
+     * the changes recorded in "MemberJournal.log" since then.
+     * It then opens the journal so every new change is recorded,
+     * and starts compacting the journal into the snapshot in the background.
+     */
+    private void restoreMembers() {
+        try {
+            journal = MemberJournal.restore(members, true);
+            journal.setFailureHandler(error -> SwingUtilities.invokeLater(() -> showJournalFailure(error)));
+            compactor = new SnapshotCompactor(members, journal);
+            compactor.start();
+            members.buildSearchIndexInBackground();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(null, "Error restoring members: " + ex.getMessage()
+                                          + "\nChanges are not journaled in this session. Saving to file moves "
+                                          + MemberJournal.FILE_NAME + " aside to " + MemberJournal.FILE_NAME + ".bak.");
+        }
+    }
+    
+    /**
+     * Creates the member service with the payment ledger continuing "PaymentLedger.log",
+     * and lets the background compactor keep writing its entries.
+     * If the ledger file cannot be read, the ledger is kept in memory for this session.
+     */
+    private MemberService openService() {
+        try {
+            MemberService opened = new MemberService(members, new File(PaymentLedger.FILE_NAME));
+            if (compactor != null) {
+                compactor.setLedger(opened.getLedger());
+            }
+            return opened;
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(null, "Error reading payment ledger: " + ex.getMessage()
+                                          + "\nPayments of this session are not added to the ledger file.");
+            return new MemberService(members);
+        }
+    }
+    
+    /**
+     * Warns that the journal stopped writing, so changes from now on are lost if the application crashes.
+     * The title keeps showing it after the message is closed.
+     *
+     * @param error     Error that stopped the journal
+     */
+    private void showJournalFailure(IOException error) {
+        setTitle("S-Gym & Fitness - changes are NOT being saved");
+        JOptionPane.showMessageDialog(this, "Error writing MemberJournal.log: " + error.getMessage()
+                                      + "\nChanges are no longer recorded and will be lost if the application stops."
+                                      + "\nUse Save to File to keep a copy of the members.",
+                                      "Journal Stopped", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    /**
+     * Reads the visit days saved in "AttendanceHistory.dat" by the last session, if any,
+     * and lets the background compactor keep saving them.
+     */
+    private void loadAttendanceHistory() {
+        File file = new File(AttendanceHistory.FILE_NAME);
+        if (file.exists()) {
+            try {
+                service.getAttendanceHistory().load(file);
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(null, "Error reading attendance history: " + ex.getMessage());
+            }
+        }
+        if (compactor != null) {
+            // Saved in the background too, so a crash does not lose the visit days of the session
+            compactor.setAttendanceHistory(service.getAttendanceHistory(), file);
+        }
+    }
+    
+    /**
+     * Saves the visit days of all members to "AttendanceHistory.dat".
+     */
+    private void saveAttendanceHistory() {
+        try {
+            service.getAttendanceHistory().save(new File(AttendanceHistory.FILE_NAME));
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error saving attendance history: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the remaining payment ledger entries to "PaymentLedger.log".
+     */
+    private void closeLedger() {
+        try {
+            service.getLedger().close();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error writing payment ledger: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Starts the HTTP server on the same members and journal as the GUI,
+     * so kiosk check-ins and GUI changes go through the same member service.
+     *
+     * @param port      Port to listen on
+     */
+    private void startHttpServer(int port) {
+        try {
+            httpServer = new MemberHttpServer(service, journal, port);
+            httpServer.start();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error starting HTTP server: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Writes any pending journal records and closes the journal.
+     */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        compactor.stop();
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error writing journal: " + ex.getMessage());
+        }
+    }
+    
     /**
      * It sets up the combo boxes for selecting a date(year, month and day) for two fields,
      * Date of Birth(dob) and Membership Start Date(ms).
@@ -293,6 +469,19 @@ public class GymGUI extends JFrame {
         JButton payDueButton = new JButton("Pay Due Amount");
         JButton readFromFileButton = new JButton("Read from File");
         JButton clearButton = new JButton("Clear");
+        JButton saveSnapshotButton = new JButton("Save Snapshot");
+        JButton loadSnapshotButton = new JButton("Load Snapshot");
+        JButton bulkCheckInButton = new JButton("Bulk Check-In");
+        JButton importMembersButton = new JButton("Import Members");
+        JButton exportMembersButton = new JButton("Export Members");
+        JButton findMemberButton = new JButton("Find Member");
+        JButton paymentReportButton = new JButton("Payment Report");
+        JButton dashboardButton = new JButton("Dashboard");
+        JButton groupReportButton = new JButton("Group Report");
+        JButton upgradeCandidatesButton = new JButton("Upgrade Candidates");
+        JButton dateReportButton = new JButton("Date Report");
+        JButton visitHistoryButton = new JButton("Visit History");
+        JButton metricsButton = new JButton("Metrics");
         
         buttonPanel.add(addRegularButton);
         buttonPanel.add(markAttendanceButton);
@@ -307,6 +496,19 @@ public class GymGUI extends JFrame {
         buttonPanel.add(payDueButton);
         buttonPanel.add(readFromFileButton);
         buttonPanel.add(clearButton);
+        buttonPanel.add(saveSnapshotButton);
+        buttonPanel.add(loadSnapshotButton);
+        buttonPanel.add(bulkCheckInButton);
+        buttonPanel.add(importMembersButton);
+        buttonPanel.add(exportMembersButton);
+        buttonPanel.add(findMemberButton);
+        buttonPanel.add(paymentReportButton);
+        buttonPanel.add(dashboardButton);
+        buttonPanel.add(groupReportButton);
+        buttonPanel.add(upgradeCandidatesButton);
+        buttonPanel.add(dateReportButton);
+        buttonPanel.add(visitHistoryButton);
+        buttonPanel.add(metricsButton);
         
         // Adding all panels to main panel
         mainPanel.add(personalInfoPanel);
@@ -410,6 +612,84 @@ public class GymGUI extends JFrame {
             }
          
         });
+        
+        saveSnapshotButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                saveSnapshot();
+            }
+        });
+        
+        loadSnapshotButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                loadSnapshot();
+            }
+        });
+        
+        bulkCheckInButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                bulkCheckIn();
+            }
+        });
+        
+        importMembersButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                importMembers();
+            }
+        });
+        
+        exportMembersButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                exportMembers();
+            }
+        });
+        
+        findMemberButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                findMember();
+            }
+        });
+        
+        paymentReportButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showPaymentReport();
+            }
+        });
+        
+        dashboardButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showDashboard();
+            }
+        });
+        
+        groupReportButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showGroupReport();
+            }
+        });
+        
+        upgradeCandidatesButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showUpgradeCandidates();
+            }
+        });
+        
+        dateReportButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showDateReport();
+            }
+        });
+        
+        visitHistoryButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showVisitHistory();
+            }
+        });
+        
+        metricsButton.addActionListener(new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                showMetrics();
+            }
+        });
     }
     
     /**
@@ -417,42 +697,7 @@ public class GymGUI extends JFrame {
      * It returns true if the ID is duplicate otherwise false.
      */
     private boolean isIdDuplicate(int id) {
-        for (GymMember member : members) {
-            if (member.getId() == id) {
-                return true;
-            }
-        }
-        return false;
-    }
-    
-    /**
-     * Checks if the email is valid:
-     * - No spaces
-     * - Exactly one '@', not at start or end
-     * - At least one '.' after '@', not at end
-     * @return true if valid, false otherwise
-     */
-    private boolean isEmailValid(String email) {
-        if (email == null || email.isEmpty()) {
-            return false;
-        }
-        
-        if (email.contains(" ")) {
-            return false;
-        }
-        int atIndex = email.indexOf('@');
-        int lastAtIndex = email.lastIndexOf('@');
-
-        if (atIndex <= 0 || atIndex != lastAtIndex || atIndex == email.length() - 1) {
-            return false;
-        }
-
-        int dotAfterAt = email.indexOf('.', atIndex);
-        if (dotAfterAt == -1 || dotAfterAt == email.length() - 1) {
-            return false;
-        }
-        
-        return true;
+        return members.contains(id);
     }
         
     /**
@@ -468,36 +713,21 @@ public class GymGUI extends JFrame {
                 return;
             }
             
-            String name = nameField.getText();
-            String location = locationField.getText();
-            String phone = phoneField.getText();
-            String email = emailField.getText();
-            String gender = maleButton.isSelected() ? "Male" : "Female";
+            String gender = maleButton.isSelected() ? "Male" : femaleButton.isSelected() ? "Female" : "";
             String dob = dobDayComboBox.getSelectedItem() + "/" + 
                         dobMonthComboBox.getSelectedItem() + "/" + 
                         dobYearComboBox.getSelectedItem();
             String startDate = msDayComboBox.getSelectedItem() + "/" + 
                              msMonthComboBox.getSelectedItem() + "/" + 
                              msYearComboBox.getSelectedItem();
-            String referral = referralField.getText();
             
-            if (name.isEmpty() || location.isEmpty() || phone.isEmpty() || 
-                email.isEmpty() || (!maleButton.isSelected() && !femaleButton.isSelected())) {
-                JOptionPane.showMessageDialog(this, "Please fill all the required fields!");
-                return;
-            }
-            
-            if (!isEmailValid(email)) {
-                JOptionPane.showMessageDialog(this, "Please enter a valid email address!");
-                return;
+            MemberService.Result result = service.addRegularMember(id, nameField.getText(), locationField.getText(),
+                                                                phoneField.getText(), emailField.getText(), gender,
+                                                                dob, startDate, referralField.getText());
+            JOptionPane.showMessageDialog(this, result.getMessage());
+            if (result.isOk()) {
+                clearFields();
             }
-
-            RegularMember member = new RegularMember(id, name, location, phone, email, 
-                                                   gender, dob, startDate, referral);                                      
-            members.add(member);
-            JOptionPane.showMessageDialog(this, "Regular Member added successfully!");
-            clearFields();
-            
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -510,18 +740,7 @@ public class GymGUI extends JFrame {
     private void markAttendance() {
         try {
             int id = Integer.parseInt(idField.getText());
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    if (member.getActiveStatus()) {
-                        member.markAttendance();
-                        JOptionPane.showMessageDialog(this, "Attendance marked successfully!");
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Membership is not active!");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.checkIn(id).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -537,27 +756,7 @@ public class GymGUI extends JFrame {
         try {
             int id = Integer.parseInt(idField.getText());
             String reason = removalReasonField.getText();
-            
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    if (member instanceof PremiumMember) {
-                        ((PremiumMember) member).revertPremiumMember();
-                        JOptionPane.showMessageDialog(this, "Premium Member reverted successfully!");
-                    } else if (member instanceof RegularMember) {
-                        if (reason.isEmpty()) {
-                            JOptionPane.showMessageDialog(this, "Please enter a removal reason!");
-                            return;
-                        }
-                        ((RegularMember) member).revertRegularMember(reason);
-                        JOptionPane.showMessageDialog(this, "Regular Member reverted successfully!");
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Unknown member type!");
-                    }
-                    return;
-                }
-            }
-            
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.revert(id, reason).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -576,36 +775,21 @@ public class GymGUI extends JFrame {
                 return;
             }
             
-            String name = nameField.getText();
-            String location = locationField.getText();
-            String phone = phoneField.getText();
-            String email = emailField.getText();
-            String gender = maleButton.isSelected() ? "Male" : "Female";
+            String gender = maleButton.isSelected() ? "Male" : femaleButton.isSelected() ? "Female" : "";
             String dob = dobDayComboBox.getSelectedItem() + "/" + 
                         dobMonthComboBox.getSelectedItem() + "/" + 
                         dobYearComboBox.getSelectedItem();
             String startDate = msDayComboBox.getSelectedItem() + "/" + 
                              msMonthComboBox.getSelectedItem() + "/" + 
                              msYearComboBox.getSelectedItem();
-            String trainer = trainerField.getText();
-            
-            if (name.isEmpty() || location.isEmpty() || phone.isEmpty() || 
-                email.isEmpty() || (!maleButton.isSelected() && !femaleButton.isSelected())) {
-                JOptionPane.showMessageDialog(this, "Please fill all the required fields!");
-                return;
-            }
             
-            if (!isEmailValid(email)) {
-                JOptionPane.showMessageDialog(this, "Please enter a valid email address!");
-                return;
+            MemberService.Result result = service.addPremiumMember(id, nameField.getText(), locationField.getText(),
+                                                                phoneField.getText(), emailField.getText(), gender,
+                                                                dob, startDate, trainerField.getText());
+            JOptionPane.showMessageDialog(this, result.getMessage());
+            if (result.isOk()) {
+                clearFields();
             }
-            
-            PremiumMember member = new PremiumMember(id, name, location, phone, email, 
-                                                   gender, dob, startDate, trainer);
-            members.add(member);
-            JOptionPane.showMessageDialog(this, "Premium Member added successfully!");
-            clearFields();
-            
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -619,96 +803,143 @@ public class GymGUI extends JFrame {
         try {
             int id = Integer.parseInt(idField.getText());
             String selectedPlan = (String) planComboBox.getSelectedItem();
-            
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    if (member instanceof RegularMember) {
-                        RegularMember regularMember = (RegularMember) member;
-                        if (member.getActiveStatus()) {
-                            String result = regularMember.upgradePlan(selectedPlan);
-                            JOptionPane.showMessageDialog(this, result);
-                        } else {
-                            JOptionPane.showMessageDialog(this, "Membership is not active!");
-                        }
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Not a Regular Member!");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.upgradePlan(id, selectedPlan).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
     }
     
     /**
-     * Displays the details of all members.
-     * Lists each member's information including ID, name, location, phone, email, gender, DOB, membership start date,
-     * attendance, loyalty points and active status.
-     * For Regular Members, it shows the plan, price and removal reason if available.
-     * For Premium Members, it shows personal trainer, paid amount, payment status, remaining amount and discount if applicable.
+     * Displays the details of all members in a table.
+     * Each row shows a member's ID, type, name, location, phone, email, gender, DOB, membership start date,
+     * attendance, loyalty points, active status, plan, price and the premium payment details.
+     * The table reads rows straight from the member list and only draws the visible ones.
+     * Clicking a column header sorts by it and typing in the search field filters the rows,
+     * both run in the background. Selecting a row shows that member's full details below the table.
      * If no members are found, a message "No members found!" is displayed.
      */
     private void displayMembers() {
-        JFrame displayFrame = new JFrame("Member Details");
-        JTextArea textArea = new JTextArea(20, 40);
-        textArea.setEditable(false);
-        
         if (members.isEmpty()) {
-            textArea.setText("No members found!");
-        } else {
-            StringBuilder displayText = new StringBuilder();
-            for (GymMember member : members) {
-                if (member instanceof RegularMember) {
-                    displayText.append("--- REGULAR MEMBER ---\n");
-                } else if (member instanceof PremiumMember) {
-                    displayText.append("--- PREMIUM MEMBER ---\n");
-                }
-                
-                displayText.append("ID: ").append(member.getId()).append("\n");
-                displayText.append("Name: ").append(member.getName()).append("\n");
-                displayText.append("Location: ").append(member.getLocation()).append("\n");
-                displayText.append("Phone: ").append(member.getPhone()).append("\n");
-                displayText.append("Email: ").append(member.getEmail()).append("\n");
-                displayText.append("Gender: ").append(member.getGender()).append("\n");
-                displayText.append("DOB: ").append(member.getDOB()).append("\n");
-                displayText.append("Start Date: ").append(member.getMembershipStartDate()).append("\n");
-                displayText.append("Attendance: ").append(member.getAttendance()).append("\n");
-                displayText.append("Loyalty Points: ").append(member.getLoyaltyPoints()).append("\n");
-                displayText.append("Active Status: ").append(member.getActiveStatus()).append("\n");
-                
-                if (member instanceof RegularMember) {
-                    RegularMember regMember = (RegularMember) member;
-                    displayText.append("Plan: ").append(regMember.getPlan()).append("\n");
-                    displayText.append("Price: ").append(regMember.getPrice()).append("\n");
-                    if (!regMember.getRemovalReason().isEmpty()) {
-                        displayText.append("Removal Reason: ").append(regMember.getRemovalReason()).append("\n");
-                    }
-                } else if (member instanceof PremiumMember) {
-                    PremiumMember premMember = (PremiumMember) member;
-                    displayText.append("Personal Trainer: ").append(premMember.getPersonalTrainer()).append("\n");
-                    displayText.append("Paid Amount: ").append(premMember.getPaidAmount()).append("\n");
-                    displayText.append("Payment Status: ").append(premMember.getIsFullPayment() ? "Complete" : "Incomplete").append("\n");
-                    double remainingAmount = premMember.getPremiumCharge() - premMember.getPaidAmount();
-                    displayText.append("Remaining Amount: ").append(remainingAmount).append("\n");
-                    if (premMember.getIsFullPayment()) {
-                        displayText.append("Discount Amount: ").append(premMember.getDiscountAmount()).append("\n");
-                    }
+            JOptionPane.showMessageDialog(this, "No members found!");
+            return;
+        }
+        
+        final JFrame displayFrame = new JFrame("Member Details");
+        final MemberTableModel model = new MemberTableModel(members);
+        final JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        
+        // Sorts by the clicked column
+        table.getTableHeader().addMouseListener(new MouseAdapter(){
+            public void mouseClicked(MouseEvent e){
+                int column = table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint()));
+                if (column >= 0) {
+                    model.sortBy(column);
                 }
-                
-                displayText.append("\n---------------------------\n\n");
             }
-            textArea.setText(displayText.toString());
-        }
+        });
+        
+        // Shows the full details of the selected member
+        final JTextArea detailsArea = new JTextArea(8, 40);
+        detailsArea.setEditable(false);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            int row = table.getSelectedRow();
+            if (!e.getValueIsAdjusting() && row >= 0 && row < model.getRowCount()) {
+                detailsArea.setText(describeMember(model.getMemberAt(row)));
+                detailsArea.setCaretPosition(0);
+            }
+        });
+        
+        // Filters the rows shortly after the user stops typing
+        final JTextField searchField = new JTextField(25);
+        final Timer filterTimer = new Timer(250, e -> model.setFilter(searchField.getText()));
+        filterTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener(){
+            public void insertUpdate(DocumentEvent e){
+                filterTimer.restart();
+            }
+            public void removeUpdate(DocumentEvent e){
+                filterTimer.restart();
+            }
+            public void changedUpdate(DocumentEvent e){
+                filterTimer.restart();
+            }
+        });
+        
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        
+        // Keeps the table up to date while the window is open
+        members.addListener(model);
+        displayFrame.addWindowListener(new WindowAdapter(){
+            public void windowClosed(WindowEvent e){
+                members.removeListener(model);
+            }
+        });
+        displayFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        displayFrame.add(scrollPane);
-        displayFrame.pack();
+        displayFrame.add(searchPanel, BorderLayout.NORTH);
+        displayFrame.add(new JScrollPane(table), BorderLayout.CENTER);
+        displayFrame.add(new JScrollPane(detailsArea), BorderLayout.SOUTH);
+        displayFrame.setSize(1100, 600);
         displayFrame.setLocationRelativeTo(this);
         displayFrame.setVisible(true);
     }
     
+    /**
+     * Builds the full details text of one member.
+     * For Regular Members, it includes the plan, price and removal reason if available.
+     * For Premium Members, it includes personal trainer, paid amount, payment status, remaining amount and discount if applicable.
+     */
+    static String describeMember(GymMember member) {
+        StringBuilder displayText = new StringBuilder();
+        appendMemberDetails(displayText, member);
+        return displayText.toString();
+    }
+    
+    /**
+     * Appends the full details of one member to the text.
+     */
+    static void appendMemberDetails(StringBuilder displayText, GymMember member) {
+        if (member instanceof RegularMember) {
+            displayText.append("--- REGULAR MEMBER ---\n");
+        } else if (member instanceof PremiumMember) {
+            displayText.append("--- PREMIUM MEMBER ---\n");
+        }
+        
+        displayText.append("ID: ").append(member.getId()).append("\n");
+        displayText.append("Name: ").append(member.getName()).append("\n");
+        displayText.append("Location: ").append(member.getLocation()).append("\n");
+        displayText.append("Phone: ").append(member.getPhone()).append("\n");
+        displayText.append("Email: ").append(member.getEmail()).append("\n");
+        displayText.append("Gender: ").append(member.getGender()).append("\n");
+        displayText.append("DOB: ").append(member.getDOB()).append("\n");
+        displayText.append("Start Date: ").append(member.getMembershipStartDate()).append("\n");
+        displayText.append("Attendance: ").append(member.getAttendance()).append("\n");
+        displayText.append("Loyalty Points: ").append(member.getLoyaltyPoints()).append("\n");
+        displayText.append("Active Status: ").append(member.getActiveStatus()).append("\n");
+        
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            displayText.append("Plan: ").append(regMember.getPlan()).append("\n");
+            displayText.append("Price: ").append(regMember.getPrice()).append("\n");
+            if (!regMember.getRemovalReason().isEmpty()) {
+                displayText.append("Removal Reason: ").append(regMember.getRemovalReason()).append("\n");
+            }
+        } else if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            displayText.append("Personal Trainer: ").append(premMember.getPersonalTrainer()).append("\n");
+            displayText.append("Paid Amount: ").append(premMember.getPaidAmount()).append("\n");
+            displayText.append("Payment Status: ").append(premMember.getIsFullPayment() ? "Complete" : "Incomplete").append("\n");
+            displayText.append("Remaining Amount: ").append(premMember.getRemainingAmount()).append("\n");
+            if (premMember.getIsFullPayment()) {
+                displayText.append("Discount Amount: ").append(premMember.getDiscountAmount()).append("\n");
+            }
+        }
+    }
+    
     /**
      * Activates the membership of a gym member if the ID is valid and member is found in the list and shows success message,
      * otherwise shows an error message.
@@ -716,14 +947,7 @@ public class GymGUI extends JFrame {
     private void activateMembership() {
         try {
             int id = Integer.parseInt(idField.getText());
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    member.activateMembership();
-                    JOptionPane.showMessageDialog(this, "Membership activated successfully!");
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.activate(id).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -736,20 +960,11 @@ public class GymGUI extends JFrame {
     private void calculateDiscount() {
         try {
             int id = Integer.parseInt(idField.getText());
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    if (member instanceof PremiumMember) {
-                        PremiumMember premiumMember = (PremiumMember) member;
-                        premiumMember.calculateDiscount();
-                        discountField.setText(String.valueOf(premiumMember.getDiscountAmount()));
-                        JOptionPane.showMessageDialog(this, "Discount calculated!");
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Not a Premium Member!");
-                    }
-                    return;
-                }
+            MemberService.Result result = service.calculateDiscount(id);
+            if (result.isOk()) {
+                discountField.setText(String.valueOf(((PremiumMember) members.findById(id)).getDiscountAmount()));
             }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, result.getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -758,50 +973,43 @@ public class GymGUI extends JFrame {
     /**
      * Saves all gym members' details into a file named "MemberDetails.txt".
      * It includes basic info for every member and extra payment details for premium members.
+     * Rows are encoded straight into the exporter's buffers, and the file is written in the background with a progress dialog that can cancel the save.
+     * If a save is requested while one is running, one more save runs after it finishes.
      * Shows a success message when done or an error message if something goes wrong.
-     * 
      */
     private void saveToFile() {
-        try {
-            File file = new File("MemberDetails.txt");
-            PrintWriter writer = new PrintWriter(new FileWriter(file));
-            
-            writer.printf("%-5s %-20s %-20s %-15s %-35s %-30s %-10s %-10s %-20s %-20s %-20s %-20s %-20s %-20s\n", 
-                         "ID", "Name", "Location", "Phone", "Email", "Membership Start Date", "Plan", "Price", 
-                         "Attendance", "Loyalty Points", "Active Status", "Full Payment", "Discount Amount", "Net Amount Paid");
+        if (saveTextTask != null) {
+            saveTextAgain = true;
+            return;
+        }
+        
+        // Copy of the roster so members can keep changing while the file is written
+        final List<GymMember> roster = members.getAll();
+        saveTextTask = new ProgressTask<Boolean>(this, "Saving to MemberDetails.txt", "saveToFile") {
+            protected Boolean work() throws IOException {
+                return exporter.save(new File("MemberDetails.txt"), roster, false,
+                                     written -> updateProgress(written, roster.size()));
+            }
             
-            for (GymMember member : members) {
-                String plan = "";
-                double price = 0.0;
-                String fullPayment = "N/A";
-                String discountAmount = "N/A";
-                String netAmountPaid = "N/A";
-                
-                if (member instanceof RegularMember) {
-                    RegularMember regMember = (RegularMember) member;
-                    plan = regMember.getPlan();
-                    price = regMember.getPrice();
-                } else if (member instanceof PremiumMember) {
-                    PremiumMember premMember = (PremiumMember) member;
-                    plan = "premium";
-                    price = premMember.getPremiumCharge();
-                    fullPayment = premMember.getIsFullPayment() ? "Yes" : "No";
-                    discountAmount = String.valueOf(premMember.getDiscountAmount());
-                    netAmountPaid = String.valueOf(premMember.getPaidAmount());
+            protected void succeeded(Boolean saved) {
+                if (saved) {
+                    JOptionPane.showMessageDialog(GymGUI.this, "Saved to MemberDetails.txt");
                 }
-                
-                writer.printf("%-5s %-20s %-20s %-15s %-35s %-30s %-10s %-10.1f %-20d %-20.2f %-20s %-20s %-20s %-20s\n",
-                             member.getId(), member.getName(), member.getLocation(), member.getPhone(),
-                             member.getEmail(), member.getMembershipStartDate(), plan, price,
-                             member.getAttendance(), member.getLoyaltyPoints(),
-                             member.getActiveStatus() ? "Active" : "Inactive", fullPayment, discountAmount, netAmountPaid);
             }
             
-            writer.close();
-            JOptionPane.showMessageDialog(this, "Saved to MemberDetails.txt");
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage());
-        }
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error: " + ex.getMessage());
+            }
+            
+            protected void finished() {
+                saveTextTask = null;
+                if (saveTextAgain) {
+                    saveTextAgain = false;
+                    saveToFile();
+                }
+            }
+        };
+        saveTextTask.execute();
     }
     
     /**
@@ -811,14 +1019,7 @@ public class GymGUI extends JFrame {
     private void deactivateMembership() {
         try {
             int id = Integer.parseInt(idField.getText());
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    member.deactivateMembership();
-                    JOptionPane.showMessageDialog(this, "Membership deactivated successfully!");
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.deactivate(id).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
         }
@@ -832,20 +1033,7 @@ public class GymGUI extends JFrame {
         try {
             int id = Integer.parseInt(idField.getText());
             double amount = Double.parseDouble(paidAmountField.getText());
-            
-            for (GymMember member : members) {
-                if (member.getId() == id) {
-                    if (member instanceof PremiumMember) {
-                        PremiumMember premiumMember = (PremiumMember) member;
-                        String result = premiumMember.payDueAmount(amount);
-                        JOptionPane.showMessageDialog(this, result);
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Not a Premium Member!");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(this, "Member not found!");
+            JOptionPane.showMessageDialog(this, service.payDueAmount(id, amount).getMessage());
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Please enter valid numbers!");
         }
@@ -853,49 +1041,643 @@ public class GymGUI extends JFrame {
     
     /**
      * Reads member details from "MemberDetails.txt" and displays them in a new window.
+     * Each member row is also rebuilt into a member and added to the member list,
+     * skipping members whose ID already exists.
+     * The file is memory-mapped and indexed by line in the background with a progress dialog
+     * that can cancel the read, and the window only draws the lines that are on screen.
      * If the file doesnot exist, it lets the user choose a file manually.
      * Shows an error message if the file cannot be read.
      */
     private void readFromFile() {
-        try {
-            File file = new File("MemberDetails.txt");
+        File chosen = new File("MemberDetails.txt");
+        
+        if (!chosen.exists()) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Open Member Details File");
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                chosen = fileChooser.getSelectedFile();
+            } else {
+                return; 
+            }
+        }
+        
+        final File file = chosen;
+        final MemberFileParser parser = new MemberFileParser();
+        new ProgressTask<MappedLineFile>(this, "Reading " + file.getName(), "readFromFile") {
+            // Written by work() and read by succeeded() once the task is done
+            private int loaded;
+            
+            protected MappedLineFile work() throws IOException {
+                // First half of the progress is indexing the lines, second half is rebuilding and adding members
+                final long total = Math.max(1, file.length());
+                MappedLineFile lines = MappedLineFile.open(file, scanned -> updateProgress(scanned, total * 2));
+                if (lines == null) {
+                    return null;
+                }
+                
+                int lineCount = lines.getLineCount();
+                for (int i = 0; i < lineCount; i++) {
+                    if (i % 1000 == 0 && !updateProgress(lineCount + (long) i, lineCount * 2L)) {
+                        return null;
+                    }
+                    GymMember member = parser.parseLine(lines.getLine(i));
+                    if (member != null && members.add(member)) {
+                        loaded++;
+                    }
+                }
+                return lines;
+            }
+            
+            protected void succeeded(MappedLineFile lines) {
+                if (lines == null) {
+                    return;
+                }
+                
+                JFrame displayFrame = showFileViewer(lines);
+                if (loaded > 0 || parser.getRowsSkipped() > 0) {
+                    JOptionPane.showMessageDialog(displayFrame, "Loaded " + loaded + " members from file" + 
+                                                  (parser.getRowsSkipped() > 0 ? " (" + parser.getRowsSkipped() + " rows could not be read)" : ""));
+                }
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error reading file: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Opens a window showing the lines of a mapped file in a monospaced list.
+     * Every cell has the same size, so the list only decodes and draws the visible lines.
+     */
+    private JFrame showFileViewer(MappedLineFile lines) {
+        JFrame displayFrame = new JFrame("Member Details - " + lines.getFile().getName());
+        displayFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        displayFrame.setSize(1000, 500);
+        
+        JList<String> lineList = new JList<>(lines);
+        Font font = new Font("Monospaced", Font.PLAIN, 12);
+        lineList.setFont(font);
+        FontMetrics metrics = lineList.getFontMetrics(font);
+        lineList.setFixedCellHeight(metrics.getHeight());
+        lineList.setFixedCellWidth(metrics.charWidth('m') * (lines.getLongestLine() + 2));
+        
+        displayFrame.add(new JScrollPane(lineList));
+        displayFrame.setLocationRelativeTo(this);
+        displayFrame.setVisible(true);
+        return displayFrame;
+    }
+    
+    /**
+     * Saves all gym members into the binary snapshot file "MemberDetails.dat".
+     * This is the same compaction the background compactor runs, so the journal records
+     * the snapshot contains are dropped afterwards. Without a journal, because restoring failed,
+     * the old "MemberJournal.log" is first moved aside to "MemberJournal.log.bak", so the next start
+     * does not replay its stale records on top of the new snapshot.
+     * The snapshot is written in the background with a progress dialog that can cancel the save,
+     * and a save requested while one is running is run once after it finishes.
+     * Shows a success message when done or an error message if something goes wrong.
+     */
+    private void saveSnapshot() {
+        if (saveSnapshotTask != null) {
+            saveSnapshotAgain = true;
+            return;
+        }
+        
+        saveSnapshotTask = new ProgressTask<Boolean>(this, "Saving to " + MemberSnapshot.FILE_NAME) {
+            protected Boolean work() throws IOException {
+                final int total = members.size();
+                if (compactor != null) {
+                    // Also drops the journal records the snapshot contains
+                    return compactor.compact(written -> updateProgress(written, total));
+                }
+                File oldJournal = new File(MemberJournal.FILE_NAME);
+                if (oldJournal.exists()) {
+                    Files.move(oldJournal.toPath(), new File(MemberJournal.FILE_NAME + ".bak").toPath(),
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+                return MemberSnapshot.save(new File(MemberSnapshot.FILE_NAME), members.getAll(),
+                                           written -> updateProgress(written, total));
+            }
+            
+            protected void succeeded(Boolean saved) {
+                if (saved) {
+                    JOptionPane.showMessageDialog(GymGUI.this, "Saved to " + MemberSnapshot.FILE_NAME);
+                }
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error: " + ex.getMessage());
+            }
+            
+            protected void finished() {
+                saveSnapshotTask = null;
+                if (saveSnapshotAgain) {
+                    saveSnapshotAgain = false;
+                    saveSnapshot();
+                }
+            }
+        };
+        saveSnapshotTask.execute();
+    }
+    
+    /**
+     * Loads gym members from the binary snapshot file "MemberDetails.dat".
+     * If the file doesnot exist, it lets the user choose a file manually.
+     * The file is read in the background and members whose ID already exists in the list are skipped.
+     */
+    private void loadSnapshot() {
+        File chosen = new File(MemberSnapshot.FILE_NAME);
+        
+        if (!chosen.exists()) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Open Member Snapshot File");
+            if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                chosen = fileChooser.getSelectedFile();
+            } else {
+                return; 
+            }
+        }
+        
+        final File file = chosen;
+        new ProgressTask<List<GymMember>>(this, "Reading " + file.getName()) {
+            // Written by work() and read by succeeded() once the task is done
+            private int loaded;
+            private int skipped;
+            
+            protected List<GymMember> work() throws IOException {
+                // First half of the progress is reading the file, second half is adding the members
+                final long total = Math.max(1, file.length() / 100);
+                List<GymMember> loadedMembers = MemberSnapshot.load(file, read -> updateProgress(read, total * 2));
+                if (loadedMembers == null) {
+                    return null;
+                }
+                
+                int count = loadedMembers.size();
+                for (int i = 0; i < count; i++) {
+                    if (i % 1000 == 0 && !updateProgress(count + (long) i, count * 2L)) {
+                        return null;
+                    }
+                    if (members.add(loadedMembers.get(i))) {
+                        loaded++;
+                    } else {
+                        skipped++;
+                    }
+                }
+                return loadedMembers;
+            }
+            
+            protected void succeeded(List<GymMember> loadedMembers) {
+                if (loadedMembers == null) {
+                    return;
+                }
+                JOptionPane.showMessageDialog(GymGUI.this, "Loaded " + loaded + " members" + 
+                                              (skipped > 0 ? " (" + skipped + " duplicate IDs skipped)" : ""));
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error reading file: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Checks in every member ID listed in a file of turnstile scans.
+     * The IDs are read and checked in together in the background,
+     * and a summary of the check-ins and the throughput is shown.
+     */
+    private void bulkCheckIn() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Scanned IDs File");
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        final File file = fileChooser.getSelectedFile();
+        new ProgressTask<BulkCheckIn.Result>(this, "Checking in " + file.getName(), "bulkCheckIn") {
+            protected BulkCheckIn.Result work() throws IOException {
+                return BulkCheckIn.checkIn(members, BulkCheckIn.readIds(file));
+            }
+            
+            protected void succeeded(BulkCheckIn.Result result) {
+                JOptionPane.showMessageDialog(GymGUI.this, String.format(
+                    "Scans: %d%nChecked in: %d%nNot found: %d%nNot active: %d%nNewly eligible for upgrade: %d%nThroughput: %.0f scans/second",
+                    result.getScanCount(), result.getCheckedIn(), result.getNotFound(), result.getNotActive(),
+                    result.getNewlyEligible(), result.getScansPerSecond()));
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error reading file: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Imports the members of a CSV or JSON-lines file in the background.
+     * A summary is shown afterwards, with the line and the reason of every rejected row.
+     */
+    private void importMembers() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Members File (CSV or JSON lines)");
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        final File file = fileChooser.getSelectedFile();
+        new ProgressTask<MemberImport.Result>(this, "Importing " + file.getName()) {
+            protected MemberImport.Result work() throws IOException {
+                return MemberImport.importFile(members, file, percent -> updateProgress(percent, 100));
+            }
+            
+            protected void succeeded(MemberImport.Result result) {
+                if (result == null) {
+                    return;
+                }
+                StringBuilder summary = new StringBuilder(String.format(
+                    "Imported: %d%nRejected: %d%nThroughput: %.0f rows/second%n",
+                    result.getImported(), result.getRejected(), result.getRowsPerSecond()));
+                for (MemberImport.RowError error : result.getErrors()) {
+                    summary.append('\n').append(error);
+                }
+                if (result.getRejected() > result.getErrors().size()) {
+                    summary.append("\n... and ").append(result.getRejected() - result.getErrors().size()).append(" more");
+                }
+                
+                JTextArea textArea = new JTextArea(summary.toString(), 20, 60);
+                textArea.setEditable(false);
+                JOptionPane.showMessageDialog(GymGUI.this, new JScrollPane(textArea), "Import Members",
+                                              JOptionPane.PLAIN_MESSAGE);
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error importing file: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Exports the MemberDetails.txt table of all members to a chosen file in the background.
+     * A file name ending in ".gz" is compressed with gzip.
+     */
+    private void exportMembers() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Members (name ending in .gz to compress)");
+        fileChooser.setSelectedFile(new File("MemberDetails.txt.gz"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        final File file = fileChooser.getSelectedFile();
+        final boolean gzip = file.getName().toLowerCase().endsWith(".gz");
+        final List<GymMember> roster = members.getAll();
+        new ProgressTask<Boolean>(this, "Exporting to " + file.getName()) {
+            protected Boolean work() throws IOException {
+                // An exporter of its own, as a save of MemberDetails.txt may run at the same time
+                return new MemberExporter().save(file, roster, gzip, written -> updateProgress(written, roster.size()));
+            }
             
-            if (!file.exists()) {
-                JFileChooser fileChooser = new JFileChooser();
-                fileChooser.setDialogTitle("Open Member Details File");
-                if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                    file = fileChooser.getSelectedFile();
-                } else {
-                    return; 
+            protected void succeeded(Boolean saved) {
+                if (saved) {
+                    JOptionPane.showMessageDialog(GymGUI.this, "Exported " + roster.size() + " members to " + file.getName());
                 }
             }
             
-            BufferedReader reader = new BufferedReader(new FileReader(file));
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error exporting file: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Finds members by ID, email, phone number or the start of their name using the search indexes.
+     * The search runs in the background, as the first one builds the indexes of a large roster.
+     * A single match puts the member's ID into the ID field, several matches are listed
+     * and the chosen member's ID is put into the ID field.
+     * Shows a message if no member matches.
+     */
+    private void findMember() {
+        final String query = JOptionPane.showInputDialog(this, "Name, email, phone or ID:", "Find Member",
+                                                         JOptionPane.QUESTION_MESSAGE);
+        if (query == null || query.trim().isEmpty()) {
+            return;
+        }
+        
+        new ProgressTask<List<GymMember>>(this, "Searching (the search index is built on first use)") {
+            // Written by work() and read by succeeded() once the task is done
+            private String[] choices;
             
-            // Creates a new frame for displaying member details
-            JFrame displayFrame = new JFrame("Member Details");
-            displayFrame.setSize(1000, 500);
+            protected List<GymMember> work() {
+                List<GymMember> found = service.search(query, 50);
+                choices = new String[found.size()];
+                for (int i = 0; i < found.size(); i++) {
+                    GymMember member = found.get(i);
+                    choices[i] = member.getId() + " - " + member.getName() + " (" + member.getEmail() + ", " + member.getPhone() + ")";
+                }
+                return found;
+            }
             
-            // Creates a text area to display the file content
-            JTextArea textArea = new JTextArea();
-            textArea.setEditable(false);
-            textArea.setFont(new Font("Monospaced", Font.PLAIN, 12)); 
-            JScrollPane scrollPane = new JScrollPane(textArea);
+            protected void succeeded(List<GymMember> found) {
+                if (found.isEmpty()) {
+                    JOptionPane.showMessageDialog(GymGUI.this, "No members found!");
+                    return;
+                }
+                
+                GymMember chosen = found.get(0);
+                if (found.size() > 1) {
+                    Object choice = JOptionPane.showInputDialog(GymGUI.this, found.size() + " members found:", "Find Member",
+                                                                JOptionPane.PLAIN_MESSAGE, null, choices, choices[0]);
+                    if (choice == null) {
+                        return;
+                    }
+                    for (int i = 0; i < choices.length; i++) {
+                        if (choices[i].equals(choice)) {
+                            chosen = found.get(i);
+                        }
+                    }
+                }
+                idField.setText(String.valueOf(chosen.getId()));
+                JOptionPane.showMessageDialog(GymGUI.this, describeMember(chosen));
+            }
             
-            // Reads the entire file into the text area
-            String line;
-            while ((line = reader.readLine()) != null) {
-                textArea.append(line + "\n");
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Shows the members, active rate, attendance and revenue of the roster grouped by location,
+     * by regular member plan and by premium member trainer.
+     * The report is computed in the background on all processors.
+     */
+    private void showGroupReport() {
+        new ProgressTask<RosterReport>(this, "Computing the group report") {
+            protected RosterReport work() {
+                return RosterReport.of(members);
+            }
+            
+            protected void succeeded(RosterReport report) {
+                JTextArea textArea = new JTextArea(report.format() + String.format("Computed in %.1f ms",
+                                                   report.getElapsedNanos() / 1e6), 25, 110);
+                textArea.setEditable(false);
+                textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+                JOptionPane.showMessageDialog(GymGUI.this, new JScrollPane(textArea), "Group Report",
+                                              JOptionPane.PLAIN_MESSAGE);
+            }
+            
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error computing the report: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Shows the premium payment totals kept by the payment ledger: amount collected, amount outstanding
+     * and discounts granted, followed by the most recent ledger entries.
+     * If a member ID is entered, all of that member's ledger entries are shown instead of the recent ones;
+     * they are read from the ledger file in the background.
+     */
+    private void showPaymentReport() {
+        PaymentLedger ledger = service.getLedger();
+        StringBuilder report = new StringBuilder();
+        report.append("Premium Members: ").append(ledger.getAccountCount()).append("\n");
+        report.append("Collected: ").append(Money.format(ledger.getCollectedPaisa())).append("\n");
+        report.append("Outstanding: ").append(Money.format(ledger.getOutstandingPaisa())).append("\n");
+        report.append("Discounts Granted: ").append(Money.format(ledger.getDiscountsPaisa())).append("\n");
+        report.append("Ledger Entries: ").append(ledger.getEntryCount()).append("\n\n");
+        
+        int id;
+        try {
+            id = Integer.parseInt(idField.getText().trim());
+        } catch (NumberFormatException e) {
+            report.append("Recent entries:\n");
+            showPaymentReport(report, ledger.getRecentEntries(20));
+            return;
+        }
+        new ProgressTask<List<PaymentLedger.Entry>>(this, "Reading the payment ledger") {
+            protected List<PaymentLedger.Entry> work() throws IOException {
+                return ledger.getHistory(id);
             }
             
-            displayFrame.add(scrollPane);
-            displayFrame.setLocationRelativeTo(this);
-            displayFrame.setVisible(true);
+            protected void succeeded(List<PaymentLedger.Entry> history) {
+                report.append("Entries of member ").append(id).append(":\n");
+                showPaymentReport(report, history);
+            }
             
-            reader.close();
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Error reading file: " + ex.getMessage());
+            protected void failed(Exception ex) {
+                JOptionPane.showMessageDialog(GymGUI.this, "Error reading the payment ledger: " + ex.getMessage());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Shows the payment report followed by the ledger entries.
+     *
+     * @param report    Totals of the report
+     * @param shown     Ledger entries to list
+     */
+    private void showPaymentReport(StringBuilder report, List<PaymentLedger.Entry> shown) {
+        for (PaymentLedger.Entry entry : shown) {
+            report.append(entry).append("\n");
         }
+        
+        JTextArea textArea = new JTextArea(report.toString(), 20, 50);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Payment Report", JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    /**
+     * Shows a dashboard with the live roster statistics: members, regular and premium members,
+     * active members, regular members eligible for an upgrade, total plan revenue and total attendance.
+     * The numbers are kept up to date by the roster statistics, so the dashboard just reads them
+     * twice a second while it is open, also while check-ins are running.
+     */
+    private void showDashboard() {
+        final RosterStatistics statistics = service.getStatistics();
+        final JFrame dashboardFrame = new JFrame("Dashboard");
+        
+        String[] names = {"Members", "Regular Members", "Premium Members", "Active Members",
+                          "Eligible for Upgrade", "Plan Revenue", "Total Attendance"};
+        final JLabel[] values = new JLabel[names.length];
+        JPanel statsPanel = new JPanel(new GridLayout(0, 2, 15, 7));
+        statsPanel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        Font font = new Font("Monospaced", Font.BOLD, 16);
+        for (int i = 0; i < names.length; i++) {
+            statsPanel.add(new JLabel(names[i] + ":"));
+            values[i] = new JLabel();
+            values[i].setFont(font);
+            statsPanel.add(values[i]);
+        }
+        
+        final Timer refreshTimer = new Timer(500, e -> {
+            values[0].setText(String.valueOf(statistics.getMemberCount()));
+            values[1].setText(String.valueOf(statistics.getRegularCount()));
+            values[2].setText(String.valueOf(statistics.getPremiumCount()));
+            values[3].setText(String.valueOf(statistics.getActiveCount()));
+            values[4].setText(String.valueOf(statistics.getEligibleForUpgradeCount()));
+            values[5].setText(Money.format(statistics.getPlanRevenuePaisa()));
+            values[6].setText(String.valueOf(statistics.getAttendanceTotal()));
+        });
+        refreshTimer.setInitialDelay(0);
+        refreshTimer.start();
+        dashboardFrame.addWindowListener(new WindowAdapter(){
+            public void windowClosed(WindowEvent e){
+                refreshTimer.stop();
+            }
+        });
+        dashboardFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        
+        dashboardFrame.add(statsPanel, BorderLayout.CENTER);
+        dashboardFrame.pack();
+        dashboardFrame.setLocationRelativeTo(this);
+        dashboardFrame.setVisible(true);
+    }
+    
+    /**
+     * Shows the regular members eligible for a plan upgrade, 50 at a time in ID order, starting
+     * at the ID entered in the ID field (or the lowest ID), followed by the members who
+     * became eligible since the list was last shown.
+     */
+    private void showUpgradeCandidates() {
+        UpgradeCandidates candidates = service.getUpgradeCandidates();
+        // Member IDs may be negative
+        int fromId = Integer.MIN_VALUE;
+        try {
+            fromId = Integer.parseInt(idField.getText().trim());
+        } catch (NumberFormatException e) {
+            // No ID entered, start at the first candidate
+        }
+        
+        StringBuilder report = new StringBuilder();
+        report.append("Eligible for Upgrade: ").append(candidates.getCount()).append("\n\n");
+        if (fromId == Integer.MIN_VALUE) {
+            report.append("Candidates:\n");
+        } else {
+            report.append("Candidates from ID ").append(fromId).append(":\n");
+        }
+        int[] ids = candidates.page(fromId, 50);
+        for (int id : ids) {
+            GymMember member = members.findById(id);
+            if (member != null) {
+                report.append(id).append(" - ").append(member.getName())
+                      .append(" (").append(member.getPhone()).append(", ").append(member.getEmail()).append(")\n");
+            }
+        }
+        if (ids.length == 50 && ids[ids.length - 1] != Integer.MAX_VALUE) {
+            report.append("Enter ID ").append(ids[ids.length - 1] + 1).append(" to see the next candidates.\n");
+        }
+        
+        report.append("\nNewly eligible:\n");
+        for (int id : candidates.pollNewlyEligible(UpgradeCandidates.QUEUE_CAPACITY)) {
+            report.append(id).append("\n");
+        }
+        
+        JTextArea textArea = new JTextArea(report.toString(), 20, 50);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Upgrade Candidates", JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    /**
+     * Shows the members who joined in the month and year selected for the membership start date,
+     * and the members whose birthday is in the coming week. Both lists come from the sorted
+     * date indexes of the repository, so no member's dates are parsed.
+     */
+    private void showDateReport() {
+        int year = Integer.parseInt((String) msYearComboBox.getSelectedItem());
+        Month month = Month.of(msMonthComboBox.getSelectedIndex() + 1);
+        LocalDate monthStart = LocalDate.of(year, month, 1);
+        LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+        LocalDate today = LocalDate.now();
+        LocalDate weekEnd = today.plusDays(6);
+        
+        StringBuilder report = new StringBuilder();
+        report.append("Joined in ").append(msMonthComboBox.getSelectedItem()).append(" ").append(year).append(": ")
+              .append(members.countByStartDate(monthStart, monthEnd)).append("\n");
+        for (GymMember member : members.findByStartDate(monthStart, monthEnd, 50)) {
+            report.append(member.getMembershipStartDate()).append("  ").append(member.getId())
+                  .append(" - ").append(member.getName()).append("\n");
+        }
+        
+        report.append("\nBirthdays this week:\n");
+        for (GymMember member : members.findByBirthday(today, weekEnd, 50)) {
+            report.append(member.getDOB()).append("  ").append(member.getId())
+                  .append(" - ").append(member.getName()).append(" (").append(member.getPhone()).append(")\n");
+        }
+        
+        JTextArea textArea = new JTextArea(report.toString(), 20, 50);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Date Report", JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    /**
+     * Shows the visit history of the member whose ID is entered: last visit, visits in the
+     * last 7 and 30 days and the current streak. Without an ID it lists the active members
+     * who have not visited in the last 30 days.
+     */
+    private void showVisitHistory() {
+        AttendanceHistory history = service.getAttendanceHistory();
+        StringBuilder report = new StringBuilder();
+        String idText = idField.getText().trim();
+        if (idText.isEmpty()) {
+            List<GymMember> lapsed = history.findLapsed(30, 100);
+            report.append("Active members with no visit in 30 days");
+            report.append(lapsed.size() == 100 ? " (first 100)" : "").append(":\n");
+            for (GymMember member : lapsed) {
+                LocalDate lastVisit = history.getLastVisit(member.getId());
+                report.append(member.getId()).append(" - ").append(member.getName()).append(" (")
+                      .append(member.getPhone()).append("), last visit: ")
+                      .append(lastVisit == null ? "never" : MemberDates.format(MemberDates.toEpochDay(lastVisit))).append("\n");
+            }
+        } else {
+            int id;
+            try {
+                id = Integer.parseInt(idText);
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Please enter a valid ID!");
+                return;
+            }
+            GymMember member = members.findById(id);
+            if (member == null) {
+                JOptionPane.showMessageDialog(this, "Member not found!");
+                return;
+            }
+            LocalDate lastVisit = history.getLastVisit(id);
+            report.append("Member: ").append(id).append(" - ").append(member.getName()).append("\n");
+            report.append("Total Attendance: ").append(member.getAttendance()).append("\n");
+            report.append("Last Visit: ")
+                  .append(lastVisit == null ? "never" : MemberDates.format(MemberDates.toEpochDay(lastVisit))).append("\n");
+            report.append("Visits in last 7 days: ").append(history.getRecentVisits(id, 7)).append("\n");
+            report.append("Visits in last 30 days: ").append(history.getRecentVisits(id, 30)).append("\n");
+            report.append("Current Streak: ").append(history.getCurrentStreak(id)).append(" days\n");
+        }
+        
+        JTextArea textArea = new JTextArea(report.toString(), 20, 50);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Visit History", JOptionPane.PLAIN_MESSAGE);
+    }
+    
+    /**
+     * Shows the count and latency percentiles of every operation run so far
+     * and writes the same table to "OperationMetrics.txt".
+     */
+    private void showMetrics() {
+        String report = OperationMetrics.report();
+        String saved;
+        try {
+            OperationMetrics.dump(new File(OperationMetrics.DUMP_FILE_NAME));
+            saved = "Saved to " + OperationMetrics.DUMP_FILE_NAME;
+        } catch (IOException ex) {
+            saved = "Error saving metrics: " + ex.getMessage();
+        }
+        
+        JTextArea textArea = new JTextArea("Latencies in microseconds\n\n" + report + "\n" + saved, 20, 90);
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Operation Metrics", JOptionPane.PLAIN_MESSAGE);
     }
     
     /**
@@ -930,5 +1712,10 @@ public class GymGUI extends JFrame {
     public static void main(String[] args) {
         GymGUI gui = new GymGUI();
         gui.setVisible(true);
+        
+        // "--http [port]" also serves the members to kiosks while the GUI is open
+        if (args.length > 0 && args[0].equals("--http")) {
+            gui.startHttpServer(args.length > 1 ? Integer.parseInt(args[1]) : MemberHttpServer.DEFAULT_PORT);
+        }
     }
 }
\ No newline at end of file
@@ -1,21 +1,45 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * Abstract class of a Gym Member containing attributes and methods.
  * 
+ * A member can be used from several threads at once (front-desk terminals and turnstiles).
+ * Every method that changes the member holds the member's own lock, so changes of one
+ * member never interleave while different members are changed in parallel.
+ * The changing attributes are volatile so getters can read them without locking.
+ * Location, gender and membership start date are kept as codes of the shared
+ * MemberDictionaries, so members with the same value share one String.
+ * Date of birth and membership start date are also kept as epoch days (see MemberDates),
+ * so they can be compared and range-queried without parsing text.
+ * A member loaded lazily from a snapshot reads its name, phone and email from the snapshot
+ * file on first use (see ColdFieldStore), as most operations never need them.
+ * 
  * @author Sadikshya Karki
  */
 public abstract class GymMember {
     // Protected attributes to store member details
     protected int id;
     protected String name;
-    protected String location;
+    protected int locationCode;
     protected String phone;
     protected String email;
-    protected String gender;
-    protected String DOB;
-    protected String membershipStartDate;
-    protected int attendance;
-    protected double loyaltyPoints;
-    protected boolean activeStatus;
+    protected int genderCode;
+    protected int dobEpochDay;
+    // Date of birth as given when it is not a valid date in the usual format, otherwise null
+    protected String dobText;
+    protected int membershipStartDateCode;
+    protected int membershipStartDay;
+    protected volatile int attendance;
+    protected volatile double loyaltyPoints;
+    protected volatile boolean activeStatus;
+    
+    // Snapshot to read name, phone and email from on first use, null once they are in the fields
+    private volatile ColdFieldStore coldStore;
+    private long coldOffset;
+    
+    // Listener told about every change, set when the member is added to a repository
+    private volatile MemberListener listener;
     
     /**
      * Constructor to initialize gym member details.
@@ -33,12 +57,16 @@ public abstract class GymMember {
     String gender, String DOB, String membershipStartDate) {
         this.id = id;
         this.name = name;
-        this.location = location;
+        this.locationCode = MemberDictionaries.LOCATIONS.encode(location);
         this.phone = phone;
         this.email = email;
-        this.gender = gender;
-        this.DOB = DOB;
-        this.membershipStartDate = membershipStartDate;
+        this.genderCode = MemberDictionaries.GENDERS.encode(gender);
+        this.dobEpochDay = MemberDates.toEpochDay(DOB);
+        if (dobEpochDay == MemberDates.NO_DATE || !MemberDates.format(dobEpochDay).equals(DOB)) {
+            this.dobText = DOB;
+        }
+        this.membershipStartDateCode = MemberDictionaries.START_DATES.encode(membershipStartDate);
+        this.membershipStartDay = MemberDates.toEpochDay(membershipStartDate);
         this.attendance = 0; 
         this.loyaltyPoints = 0; 
         this.activeStatus = false; 
@@ -49,25 +77,28 @@ public abstract class GymMember {
         return id; 
     }
     public String getName() { 
+        hydrate();
         return name; 
     }
     public String getLocation() { 
-        return location;
+        return MemberDictionaries.LOCATIONS.decode(locationCode);
     }
     public String getPhone() { 
+        hydrate();
         return phone;
     }
     public String getEmail() { 
+        hydrate();
         return email; 
     }
     public String getGender() { 
-        return gender; 
+        return MemberDictionaries.GENDERS.decode(genderCode); 
     }
     public String getDOB() { 
-        return DOB;
+        return dobText != null ? dobText : MemberDates.format(dobEpochDay);
     }
     public String getMembershipStartDate() { 
-        return membershipStartDate;
+        return MemberDictionaries.START_DATES.decode(membershipStartDateCode);
     }
     public int getAttendance() { 
         return attendance;
@@ -78,6 +109,92 @@ public abstract class GymMember {
     public boolean getActiveStatus() { 
         return activeStatus; 
     }
+    public int getLocationCode() { 
+        return locationCode; 
+    }
+    public int getGenderCode() { 
+        return genderCode; 
+    }
+    public int getMembershipStartDateCode() { 
+        return membershipStartDateCode; 
+    }
+    /**
+     * Returns the epoch day of the date of birth, or MemberDates.NO_DATE if it is not a valid date.
+     */
+    public int getDobEpochDay() { 
+        return dobEpochDay; 
+    }
+    /**
+     * Returns the date of birth as given if it is not a valid date in the usual format, otherwise null.
+     */
+    String getDobText() {
+        return dobText;
+    }
+    /**
+     * Returns the epoch day the membership started, or MemberDates.NO_DATE if it is not a valid date.
+     */
+    public int getMembershipStartDay() { 
+        return membershipStartDay; 
+    }
+    
+    /**
+     * Leaves name, phone and email in a snapshot file until they are first used.
+     * Called on a member created with null for them, before it is shared.
+     *
+     * @param store         Snapshot file holding the member's record
+     * @param offset        File offset of the record's name
+     */
+    void setColdFields(ColdFieldStore store, long offset) {
+        this.coldOffset = offset;
+        this.coldStore = store;
+    }
+    
+    /**
+     * Returns true if name, phone and email are still only in the snapshot file.
+     */
+    boolean isCold() {
+        return coldStore != null;
+    }
+    
+    /**
+     * Returns name, phone and email, in that order. A member that has not read them from
+     * the snapshot yet reads them without keeping them, for writing the member elsewhere.
+     */
+    String[] getContactFields() {
+        ColdFieldStore store = coldStore;
+        if (store != null) {
+            try {
+                return store.read(coldOffset);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new String[] { name, phone, email };
+    }
+    
+    // Reads name, phone and email from the snapshot the first time they are used
+    private void hydrate() {
+        if (coldStore != null) {
+            readColdFields();
+        }
+    }
+    
+    private synchronized void readColdFields() {
+        ColdFieldStore store = coldStore;
+        if (store == null) {
+            return;
+        }
+        try {
+            String[] fields = store.read(coldOffset);
+            this.name = fields[0];
+            this.phone = fields[1];
+            this.email = fields[2];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Written last, so a thread that sees it null also sees the fields
+        coldStore = null;
+    }
     
     /**
      * Abstract method to be implemented by subclasses for marking attendance.
@@ -87,41 +204,97 @@ public abstract class GymMember {
     /**
      * Method to activate the membership.
      */
-    public void activateMembership() {
-        this.activeStatus = true;
+    public synchronized void activateMembership() {
+        if (!this.activeStatus) {
+            this.activeStatus = true;
+            changed(MemberChange.ACTIVATED);
+        }
     }
 
     /**
      * Method to deactivate the membership (only if it is currently active).
      */
-    public void deactivateMembership() {
+    public synchronized void deactivateMembership() {
         if (this.activeStatus) {
             this.activeStatus = false;
+            changed(MemberChange.DEACTIVATED);
         }
     }
 
     /**
      * Method to reset member details (attendance, loyalty points, and active status).
      */
-    public void resetMember() {
+    public synchronized void resetMember() {
+        resetState();
+        changed(MemberChange.REVERTED);
+    }
+
+    /**
+     * Resets attendance, loyalty points and active status without notifying the listener.
+     * Used by subclasses that reset more details before notifying.
+     */
+    protected synchronized void resetState() {
         this.activeStatus = false;
         this.attendance = 0;
         this.loyaltyPoints = 0;
     }
 
+    /**
+     * Sets the listener that is told about every change of this member.
+     *
+     * @param listener      Listener to notify, or null for none
+     */
+    void setListener(MemberListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Notifies the listener (if any) that this member changed.
+     *
+     * @param change        Kind of change that was applied
+     */
+    protected void changed(MemberChange change) {
+        MemberListener current = listener;
+        if (current != null) {
+            current.memberChanged(this, change);
+        }
+    }
+
+    /**
+     * Restores attendance, loyalty points and active status from saved member data.
+     *
+     * @param attendance        Saved attendance count
+     * @param loyaltyPoints     Saved loyalty points
+     * @param activeStatus      Saved active status
+     */
+    synchronized void restoreState(int attendance, double loyaltyPoints, boolean activeStatus) {
+        this.attendance = attendance;
+        this.loyaltyPoints = loyaltyPoints;
+        this.activeStatus = activeStatus;
+    }
+
+    /**
+     * Copies the changeable details of a saved copy of this member into this member.
+     *
+     * @param saved     Saved copy of the member with the same ID and type
+     */
+    synchronized void restoreFrom(GymMember saved) {
+        restoreState(saved.attendance, saved.loyaltyPoints, saved.activeStatus);
+    }
+
     /**
      * Method to display member details.
      */
     public void display() {
         System.out.println("Gym Member Details: ");
         System.out.println("Member ID: " + id);
-        System.out.println("Name: " + name);
-        System.out.println("Location: " + location);
-        System.out.println("Phone: " + phone);
-        System.out.println("Email: " + email);
-        System.out.println("Gender: " + gender);
-        System.out.println("DOB: " + DOB);
-        System.out.println("Membership Start Date: " + membershipStartDate);
+        System.out.println("Name: " + getName());
+        System.out.println("Location: " + getLocation());
+        System.out.println("Phone: " + getPhone());
+        System.out.println("Email: " + getEmail());
+        System.out.println("Gender: " + getGender());
+        System.out.println("DOB: " + getDOB());
+        System.out.println("Membership Start Date: " + getMembershipStartDate());
         System.out.println("Attendance: " + attendance);
         System.out.println("Loyalty Points: " + loyaltyPoints);
         System.out.println("Active Status: " + activeStatus);
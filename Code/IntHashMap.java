@@ -0,0 +1,207 @@
+import java.util.Arrays;
+
+/**
+ * Hash map keyed by primitive int values.
+ *
+ * It uses open addressing with linear probing over plain arrays, so looking up,
+ * inserting and checking for a key never boxes the key into an Integer and
+ * never allocates (except when the table grows).
+ *
+ * The map is not thread-safe; callers that share it between threads must guard it.
+ * A lookup reads the table arrays once, so a lookup that races with a resize either
+ * sees a consistent table or fails with an exception instead of looping.
+ *
+ * @author Sadikshya Karki
+ */
+public class IntHashMap<V> {
+    // Key 0 marks an empty slot, so a value stored under key 0 is kept separately
+    private static final int FREE_KEY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int threshold;
+    private int mask;
+
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    /**
+     * Constructor to create an empty map with a small default capacity.
+     */
+    public IntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Constructor to create an empty map sized for the expected number of entries.
+     *
+     * @param expectedSize      Number of entries expected to be stored
+     */
+    public IntHashMap(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the map has no entries.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value stored under the key or null if there is none.
+     *
+     * @param key       Key to look up
+     * @return Value stored under the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : null;
+        }
+        Object[] table = values;
+        int index = indexOf(key);
+        return index < 0 ? null : (V) table[index];
+    }
+
+    /**
+     * Returns true if the map contains the key.
+     *
+     * @param key       Key to look up
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Stores the value under the key, replacing any previous value.
+     *
+     * @param key       Key to store the value under
+     * @param value     Value to store
+     * @return Previous value stored under the key or null
+     */
+    public V put(int key, V value) {
+        return insert(key, value, true);
+    }
+
+    /**
+     * Stores the value under the key only if the key is not already present.
+     *
+     * @param key       Key to store the value under
+     * @param value     Value to store
+     * @return Existing value stored under the key (the map is unchanged) or null if the value was added
+     */
+    public V putIfAbsent(int key, V value) {
+        return insert(key, value, false);
+    }
+
+    /**
+     * Removes every entry while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(int key, V value, boolean replace) {
+        if (key == FREE_KEY) {
+            V previous = freeKeyValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                freeKeyValue = value;
+                size++;
+                return null;
+            }
+            if (replace) {
+                freeKeyValue = value;
+            }
+            return previous;
+        }
+
+        int index = mix(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                if (replace) {
+                    values[index] = value;
+                }
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size >= threshold) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    private int indexOf(int key) {
+        int[] table = keys;
+        int tableMask = mask;
+        int index = mix(key) & tableMask;
+        int current;
+        while ((current = table[index]) != FREE_KEY) {
+            if (current == key) {
+                return index;
+            }
+            index = (index + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = mix(key) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Spreads sequential ids across the table so linear probing stays short
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        return Math.max(size, 4);
+    }
+}
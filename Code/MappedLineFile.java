@@ -0,0 +1,178 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * Text file opened through memory-mapping with an index of where every line starts.
+ *
+ * The index is built once by scanning the mapped bytes for line breaks. After that any
+ * line can be decoded straight from the mapping, so a JList using this model only reads
+ * the lines that are on screen and the operating system pages the file in and out as needed.
+ *
+ * @author Sadikshya Karki
+ */
+public class MappedLineFile extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    // Files larger than one mapping are mapped in several segments
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final long PROGRESS_INTERVAL = 1L << 24;
+
+    private final File file;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    // Start of every line, plus the end of the file after the last line
+    private long[] lineStarts;
+    private int lineCount;
+    private int longestLine;
+
+    private MappedLineFile(File file, long size, MappedByteBuffer[] segments) {
+        this.file = file;
+        this.size = size;
+        this.segments = segments;
+    }
+
+    /**
+     * Maps a file and builds its line index.
+     *
+     * @param file          Text file to open
+     * @param progress      Called with the number of bytes scanned so far, returns false to cancel
+     * @return Opened file, or null if cancelled
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedLineFile open(File file, LongPredicate progress) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            int segmentCount = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+
+            MappedLineFile lines = new MappedLineFile(file, size, segments);
+            return lines.buildIndex(progress) ? lines : null;
+        }
+    }
+
+    /**
+     * Returns the mapped file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of lines in the file.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the length in bytes of the longest line, used to size the list cells.
+     */
+    public int getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * Decodes one line of the file without its line break.
+     *
+     * @param index     Line number starting from 0
+     */
+    public String getLine(int index) {
+        long start = lineStarts[index];
+        long end = lineStarts[index + 1];
+        if (end > start && byteAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+
+        byte[] bytes = new byte[(int) (end - start)];
+        copy(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getSize() {
+        return lineCount;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return getLine(index);
+    }
+
+    private boolean buildIndex(LongPredicate progress) {
+        long[] starts = new long[1024];
+        int count = 0;
+        long lineStart = 0;
+        long nextReport = 0;
+
+        for (int s = 0; s < segments.length; s++) {
+            MappedByteBuffer segment = segments[s];
+            long base = s * SEGMENT_SIZE;
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                if (segment.get(i) == '\n') {
+                    if (count + 2 > starts.length) {
+                        starts = Arrays.copyOf(starts, starts.length * 2);
+                    }
+                    starts[count++] = lineStart;
+                    long next = base + i + 1;
+                    longestLine = (int) Math.max(longestLine, next - lineStart);
+                    lineStart = next;
+                }
+                if (base + i >= nextReport) {
+                    if (!progress.test(base + i)) {
+                        return false;
+                    }
+                    nextReport += PROGRESS_INTERVAL;
+                }
+            }
+        }
+
+        // The last line may have no line break
+        if (lineStart < size) {
+            if (count + 2 > starts.length) {
+                starts = Arrays.copyOf(starts, count + 2);
+            }
+            starts[count++] = lineStart;
+            longestLine = (int) Math.max(longestLine, size - lineStart);
+        }
+        starts[count] = size;
+
+        this.lineStarts = starts;
+        this.lineCount = count;
+        return true;
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    // Copies bytes starting at the position, across segment boundaries if needed
+    private void copy(long position, byte[] target) {
+        int copied = 0;
+        while (copied < target.length) {
+            long current = position + copied;
+            MappedByteBuffer segment = segments[(int) (current / SEGMENT_SIZE)];
+            int offset = (int) (current % SEGMENT_SIZE);
+            int length = Math.min(target.length - copied, segment.limit() - offset);
+            segment.get(offset, target, copied, length);
+            copied += length;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Kinds of changes that can happen to a gym member.
+ * 
+ * @author Sadikshya Karki
+ */
+public enum MemberChange {
+    ADDED,
+    ATTENDANCE,
+    ACTIVATED,
+    DEACTIVATED,
+    PAYMENT,
+    DISCOUNT,
+    UPGRADED,
+    REVERTED
+}
@@ -0,0 +1,356 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Columnar store of members for very large rosters.
+ *
+ * Instead of one object per member with a dozen fields and a String per attribute, every
+ * attribute is one array indexed by row: int arrays for IDs and attendance, double and long
+ * arrays for loyalty points, prices and payments, and bitsets for the true/false flags.
+ * The date of birth is an int epoch day, as in GymMember; the rare date that is not a valid
+ * date in the usual format is kept as its text, by row. Attributes that repeat across members
+ * (location, gender, start date, plan, referral source, trainer, removal reason) are stored
+ * as int codes into a StringDictionary, so each distinct value is kept once; the codes of
+ * the shared MemberDictionaries are copied as they are. Names, phone numbers and emails are
+ * nearly unique and stay as strings.
+ *
+ * view() turns a row into a RegularMember or PremiumMember on demand; every change made
+ * through the view is written back into the columns, so the usual member methods keep
+ * their rules in one place. Whole-roster numbers such as the active count are read from
+ * the columns directly without creating members.
+ *
+ * Methods are synchronized on the store, so views of different members can be changed
+ * from several threads at once.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberColumns {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+
+    // Hot columns
+    private int[] ids;
+    private int[] attendance;
+    private double[] loyaltyPoints;
+    private final BitSet active;
+    private final BitSet premium;
+
+    // Regular member columns
+    private double[] price;
+    private int[] plan;
+    private final BitSet eligible;
+    private int[] removalReason;
+
+    // Premium member columns
+    private long[] paidPaisa;
+    private long[] discountPaisa;
+    private final BitSet fullPayment;
+
+    // Personal details, referral source for regular members and trainer for premium members
+    private String[] names;
+    private String[] phones;
+    private String[] emails;
+    private int[] location;
+    private int[] gender;
+    private int[] dobEpochDay;
+    private int[] startDate;
+    private int[] referralOrTrainer;
+
+    // Dates of birth that are not valid dates in the usual format, by row
+    private final IntHashMap<String> dobTexts = new IntHashMap<>();
+    private final StringDictionary removalReasons = new StringDictionary();
+
+    // Open addressing index from member ID to row + 1, 0 marks an empty slot
+    private int[] indexKeys;
+    private int[] indexRows;
+
+    // Writes changes made through views back into the columns
+    private final MemberListener writeBack = (member, change) -> update(member);
+
+    /**
+     * Constructor to create an empty store.
+     */
+    public MemberColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor to create an empty store sized for the expected number of members.
+     *
+     * @param expectedSize      Number of members expected to be stored
+     */
+    public MemberColumns(int expectedSize) {
+        int capacity = Math.max(expectedSize, INITIAL_CAPACITY);
+        this.ids = new int[capacity];
+        this.attendance = new int[capacity];
+        this.loyaltyPoints = new double[capacity];
+        this.price = new double[capacity];
+        this.plan = new int[capacity];
+        this.removalReason = new int[capacity];
+        this.paidPaisa = new long[capacity];
+        this.discountPaisa = new long[capacity];
+        this.names = new String[capacity];
+        this.phones = new String[capacity];
+        this.emails = new String[capacity];
+        this.location = new int[capacity];
+        this.gender = new int[capacity];
+        this.dobEpochDay = new int[capacity];
+        this.startDate = new int[capacity];
+        this.referralOrTrainer = new int[capacity];
+        this.active = new BitSet(capacity);
+        this.premium = new BitSet(capacity);
+        this.eligible = new BitSet(capacity);
+        this.fullPayment = new BitSet(capacity);
+        allocateIndex(capacity);
+    }
+
+    /**
+     * Creates a store holding a copy of every member in the repository.
+     *
+     * @param members       Repository holding the members
+     */
+    public static MemberColumns of(MemberRepository members) {
+        MemberColumns columns = new MemberColumns(members.size());
+        for (GymMember member : members) {
+            columns.add(member);
+        }
+        return columns;
+    }
+
+    /**
+     * Adds a copy of a member if no other member has the same ID.
+     *
+     * @param member        Member to copy
+     * @return true if the member was added, false if the ID already exists
+     */
+    public boolean add(GymMember member) {
+        // The member's lock gives a consistent copy, and is always taken before the store's lock
+        synchronized (member) {
+            synchronized (this) {
+                if (findRow(member.getId()) >= 0) {
+                    return false;
+                }
+                if (size == ids.length) {
+                    grow();
+                }
+                int row = size++;
+                ids[row] = member.getId();
+                names[row] = member.getName();
+                phones[row] = member.getPhone();
+                emails[row] = member.getEmail();
+                location[row] = member.getLocationCode();
+                gender[row] = member.getGenderCode();
+                dobEpochDay[row] = member.getDobEpochDay();
+                if (member.getDobText() != null) {
+                    dobTexts.put(row, member.getDobText());
+                }
+                startDate[row] = member.getMembershipStartDateCode();
+                if (member instanceof PremiumMember) {
+                    premium.set(row);
+                }
+                write(row, member);
+                putIndex(member.getId(), row);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of members stored.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row of the member with the ID, or -1 if there is none.
+     *
+     * @param id        ID of the member
+     */
+    public synchronized int findRow(int id) {
+        int slot = hash(id) & (indexKeys.length - 1);
+        while (indexRows[slot] != 0) {
+            if (indexKeys[slot] == id) {
+                return indexRows[slot] - 1;
+            }
+            slot = (slot + 1) & (indexKeys.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a member with the details of a row. Changes made through the returned member
+     * are written back into the columns. Each call returns a new member, so changes of one
+     * row should go through one view at a time.
+     *
+     * @param row       Row of the member, from 0 to size() - 1
+     */
+    public synchronized GymMember view(int row) {
+        checkRow(row);
+        GymMember member;
+        if (premium.get(row)) {
+            PremiumMember premMember = new PremiumMember(ids[row], names[row], getLocation(row),
+                                                         phones[row], emails[row], MemberDictionaries.GENDERS.decode(gender[row]),
+                                                         getDob(row), MemberDictionaries.START_DATES.decode(startDate[row]),
+                                                         MemberDictionaries.TRAINERS.decode(referralOrTrainer[row]));
+            premMember.restorePayment(Money.toAmount(paidPaisa[row]), fullPayment.get(row),
+                                      Money.toAmount(discountPaisa[row]));
+            member = premMember;
+        } else {
+            RegularMember regMember = new RegularMember(ids[row], names[row], getLocation(row),
+                                                        phones[row], emails[row], MemberDictionaries.GENDERS.decode(gender[row]),
+                                                        getDob(row), MemberDictionaries.START_DATES.decode(startDate[row]),
+                                                        MemberDictionaries.REFERRAL_SOURCES.decode(referralOrTrainer[row]));
+            regMember.restorePlan(MemberDictionaries.PLANS.decode(plan[row]), price[row], eligible.get(row),
+                                  removalReasons.decode(removalReason[row]));
+            member = regMember;
+        }
+        member.restoreState(attendance[row], loyaltyPoints[row], active.get(row));
+        member.setListener(writeBack);
+        return member;
+    }
+
+    /**
+     * Returns a view of the member with the ID, or null if there is none.
+     *
+     * @param id        ID of the member
+     */
+    public synchronized GymMember findById(int id) {
+        int row = findRow(id);
+        return row < 0 ? null : view(row);
+    }
+
+    // Writes the changeable details of a member over its row
+    private synchronized void update(GymMember member) {
+        int row = findRow(member.getId());
+        if (row >= 0) {
+            write(row, member);
+        }
+    }
+
+    private void write(int row, GymMember member) {
+        attendance[row] = member.getAttendance();
+        loyaltyPoints[row] = member.getLoyaltyPoints();
+        active.set(row, member.getActiveStatus());
+        if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            referralOrTrainer[row] = premMember.getPersonalTrainerCode();
+            paidPaisa[row] = premMember.getPaidPaisa();
+            discountPaisa[row] = premMember.getDiscountPaisa();
+            fullPayment.set(row, premMember.getIsFullPayment());
+        } else {
+            RegularMember regMember = (RegularMember) member;
+            referralOrTrainer[row] = regMember.getReferralSourceCode();
+            plan[row] = regMember.getPlanCode();
+            price[row] = regMember.getPrice();
+            eligible.set(row, regMember.getIsEligibleForUpgrade());
+            removalReason[row] = removalReasons.encode(regMember.getRemovalReason());
+        }
+    }
+
+    // Accessor (Getter) methods to read single columns of a row without creating a member
+    public synchronized int getId(int row) {
+        checkRow(row);
+        return ids[row];
+    }
+    public synchronized int getAttendance(int row) {
+        checkRow(row);
+        return attendance[row];
+    }
+    public synchronized boolean getActiveStatus(int row) {
+        checkRow(row);
+        return active.get(row);
+    }
+    public synchronized boolean isPremium(int row) {
+        checkRow(row);
+        return premium.get(row);
+    }
+    public synchronized String getLocation(int row) {
+        checkRow(row);
+        return MemberDictionaries.LOCATIONS.decode(location[row]);
+    }
+    public synchronized String getDob(int row) {
+        checkRow(row);
+        String text = dobTexts.get(row);
+        return text != null ? text : MemberDates.format(dobEpochDay[row]);
+    }
+
+    /**
+     * Returns the number of active members.
+     */
+    public synchronized int getActiveCount() {
+        return active.cardinality();
+    }
+
+    /**
+     * Returns the number of premium members.
+     */
+    public synchronized int getPremiumCount() {
+        return premium.cardinality();
+    }
+
+    /**
+     * Returns the sum of the attendance of all members.
+     */
+    public synchronized long getAttendanceTotal() {
+        long total = 0;
+        for (int row = 0; row < size; row++) {
+            total += attendance[row];
+        }
+        return total;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        attendance = Arrays.copyOf(attendance, capacity);
+        loyaltyPoints = Arrays.copyOf(loyaltyPoints, capacity);
+        price = Arrays.copyOf(price, capacity);
+        plan = Arrays.copyOf(plan, capacity);
+        removalReason = Arrays.copyOf(removalReason, capacity);
+        paidPaisa = Arrays.copyOf(paidPaisa, capacity);
+        discountPaisa = Arrays.copyOf(discountPaisa, capacity);
+        names = Arrays.copyOf(names, capacity);
+        phones = Arrays.copyOf(phones, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        location = Arrays.copyOf(location, capacity);
+        gender = Arrays.copyOf(gender, capacity);
+        dobEpochDay = Arrays.copyOf(dobEpochDay, capacity);
+        startDate = Arrays.copyOf(startDate, capacity);
+        referralOrTrainer = Arrays.copyOf(referralOrTrainer, capacity);
+
+        allocateIndex(capacity);
+        for (int row = 0; row < size; row++) {
+            putIndex(ids[row], row);
+        }
+    }
+
+    // Index table at least twice the capacity, so it is never more than half full
+    private void allocateIndex(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+        indexKeys = new int[tableSize];
+        indexRows = new int[tableSize];
+    }
+
+    private void putIndex(int id, int row) {
+        int slot = hash(id) & (indexKeys.length - 1);
+        while (indexRows[slot] != 0) {
+            slot = (slot + 1) & (indexKeys.length - 1);
+        }
+        indexKeys[slot] = id;
+        indexRows[slot] = row + 1;
+    }
+
+    // Spreads sequential IDs over the table
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted index of members by an int date key, such as the epoch day a membership started.
+ *
+ * Each entry is one long: the key in the high 32 bits and the member's slot in the low 32 bits,
+ * so sorting the longs sorts the members by key and a range query is two binary searches
+ * followed by reading the members between them.
+ *
+ * Members are appended to an unsorted tail. The tail is sorted and merged into the sorted
+ * part by the next query, so loading a large roster costs one sort instead of an insert
+ * per member. Members whose key is MemberDates.NO_DATE are not indexed.
+ *
+ * The index is not thread-safe; the member repository guards it with its lock.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberDateIndex {
+    private GymMember[] members;
+    private int memberCount;
+
+    private long[] entries;
+    private int sortedCount;
+    private int entryCount;
+
+    /**
+     * Constructor to create an empty index.
+     */
+    public MemberDateIndex() {
+        this.members = new GymMember[16];
+        this.entries = new long[16];
+    }
+
+    /**
+     * Adds a member under a key.
+     *
+     * @param member        Member to index
+     * @param key           Date key of the member, or NO_DATE to leave it out
+     */
+    public void add(GymMember member, int key) {
+        if (key == MemberDates.NO_DATE) {
+            return;
+        }
+        if (memberCount == members.length) {
+            members = Arrays.copyOf(members, memberCount * 2);
+        }
+        if (entryCount == entries.length) {
+            entries = Arrays.copyOf(entries, entryCount * 2);
+        }
+        members[memberCount] = member;
+        entries[entryCount++] = ((long) key << 32) | memberCount;
+        memberCount++;
+    }
+
+    /**
+     * Returns true if members were added since the last query, so the next query sorts them in.
+     */
+    public boolean needsSort() {
+        return sortedCount < entryCount;
+    }
+
+    /**
+     * Sorts the members added since the last query into the sorted part.
+     */
+    public void sort() {
+        if (sortedCount == entryCount) {
+            return;
+        }
+        Arrays.sort(entries, sortedCount, entryCount);
+        if (sortedCount > 0 && entries[sortedCount - 1] > entries[sortedCount]) {
+            merge();
+        }
+        sortedCount = entryCount;
+    }
+
+    // Merges the sorted tail into the sorted part
+    private void merge() {
+        long[] merged = new long[entries.length];
+        int left = 0;
+        int right = sortedCount;
+        int out = 0;
+        while (left < sortedCount && right < entryCount) {
+            merged[out++] = entries[left] <= entries[right] ? entries[left++] : entries[right++];
+        }
+        System.arraycopy(entries, left, merged, out, sortedCount - left);
+        out += sortedCount - left;
+        System.arraycopy(entries, right, merged, out, entryCount - right);
+        entries = merged;
+    }
+
+    /**
+     * Returns the members with a key from one key to another, both included, in key order.
+     * The index must be sorted.
+     *
+     * @param fromKey       Smallest key to return
+     * @param toKey         Largest key to return
+     * @param limit         Maximum number of members to return
+     */
+    public List<GymMember> find(int fromKey, int toKey, int limit) {
+        List<GymMember> found = new ArrayList<>();
+        int end = upperBound(toKey);
+        for (int i = lowerBound(fromKey); i < end && found.size() < limit; i++) {
+            found.add(members[(int) entries[i]]);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of members with a key from one key to another, both included.
+     * The index must be sorted.
+     *
+     * @param fromKey       Smallest key to count
+     * @param toKey         Largest key to count
+     */
+    public int count(int fromKey, int toKey) {
+        return Math.max(0, upperBound(toKey) - lowerBound(fromKey));
+    }
+
+    // Position of the first entry with a key of at least the given key
+    private int lowerBound(int key) {
+        return search((long) key << 32);
+    }
+
+    // Position of the first entry with a key larger than the given key
+    private int upperBound(int key) {
+        return key == Integer.MAX_VALUE ? sortedCount : search((long) (key + 1) << 32);
+    }
+
+    // Position of the first entry not smaller than the value
+    private int search(long value) {
+        int low = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,121 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * Conversion between member dates as the GUI writes them ("1/January/2024")
+ * and epoch days, the number of days since 1 January 1970.
+ *
+ * An epoch day is a plain int, so dates are compared and range-queried by comparing
+ * ints, without parsing any text. Text that is not a valid date in this format
+ * converts to NO_DATE.
+ *
+ * @author Sadikshya Karki
+ */
+public final class MemberDates {
+    /**
+     * Epoch day of text that is not a valid date
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final String[] MONTH_NAMES = {"January", "February", "March", "April", "May", "June",
+                                                 "July", "August", "September", "October", "November", "December"};
+
+    private MemberDates() {
+    }
+
+    /**
+     * Returns the epoch day of a date written as day/month name/year, or NO_DATE.
+     *
+     * @param text      Date such as "1/January/2024"
+     */
+    public static int toEpochDay(String text) {
+        if (text == null) {
+            return NO_DATE;
+        }
+        int firstSlash = text.indexOf('/');
+        int secondSlash = text.indexOf('/', firstSlash + 1);
+        if (firstSlash < 0 || secondSlash < 0) {
+            return NO_DATE;
+        }
+        int day = parseNumber(text, 0, firstSlash);
+        int month = parseMonth(text, firstSlash + 1, secondSlash);
+        int year = parseNumber(text, secondSlash + 1, text.length());
+        if (day < 0 || month < 0 || year < 0) {
+            return NO_DATE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            // For example 31/February/2024
+            return NO_DATE;
+        }
+    }
+
+    /**
+     * Returns an epoch day written as day/month name/year, the way the GUI writes dates.
+     *
+     * @param epochDay      Epoch day, not NO_DATE
+     */
+    public static String format(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getDayOfMonth() + "/" + MONTH_NAMES[date.getMonthValue() - 1] + "/" + date.getYear();
+    }
+
+    /**
+     * Returns the epoch day of a date.
+     *
+     * @param date      Date to convert
+     */
+    public static int toEpochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    /**
+     * Returns the day of the year of a birthday that is the same in every year,
+     * month * 32 + day, so birthdays sort by month and day whatever the year is.
+     *
+     * @param epochDay      Epoch day of the date of birth
+     */
+    public static int birthdayKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return birthdayKey(date.getMonth(), date.getDayOfMonth());
+    }
+
+    /**
+     * Returns the birthday key of a month and day.
+     *
+     * @param month         Month of the birthday
+     * @param dayOfMonth    Day of the birthday
+     */
+    public static int birthdayKey(Month month, int dayOfMonth) {
+        return month.getValue() * 32 + dayOfMonth;
+    }
+
+    // Non-negative number without sign or spaces, -1 otherwise
+    private static int parseNumber(String text, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Month number 1 to 12 of a month name, -1 otherwise
+    private static int parseMonth(String text, int from, int to) {
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            String name = MONTH_NAMES[i];
+            if (name.length() == to - from && text.regionMatches(true, from, name, 0, name.length())) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
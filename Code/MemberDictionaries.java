@@ -0,0 +1,21 @@
+/**
+ * Dictionaries shared by all members for the attributes that repeat the same few values.
+ *
+ * Members store the int code of their location, gender, membership start date, plan,
+ * referral source and personal trainer instead of their own String copy, so each distinct
+ * value is kept once however many members have it. Two members have the same value exactly
+ * when they have the same code, and reports can count per value in an array indexed by code.
+ *
+ * @author Sadikshya Karki
+ */
+public final class MemberDictionaries {
+    public static final StringDictionary LOCATIONS = new StringDictionary();
+    public static final StringDictionary GENDERS = new StringDictionary();
+    public static final StringDictionary START_DATES = new StringDictionary();
+    public static final StringDictionary PLANS = new StringDictionary();
+    public static final StringDictionary REFERRAL_SOURCES = new StringDictionary();
+    public static final StringDictionary TRAINERS = new StringDictionary();
+
+    private MemberDictionaries() {
+    }
+}
@@ -0,0 +1,409 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the MemberDetails.txt table of members straight into direct byte buffers
+ * and through a file channel, optionally compressed with gzip.
+ *
+ * The table has the same columns, widths and number formats as a printf of every row,
+ * byte for byte, but each value is encoded by hand: strings are copied as UTF-8 and
+ * padded with spaces, and numbers are written digit by digit. No format string is parsed
+ * and no value is boxed or turned into an intermediate string. A number that the
+ * hand encoders cannot write exactly, or a locale that does not use ASCII digits,
+ * falls back to the Formatter for that value.
+ *
+ * With gzip, the bytes are compressed from the row buffer into a second direct buffer
+ * by a Deflater and framed with the gzip header and trailer, so compressing needs no stream.
+ *
+ * The buffers are allocated once and reused by every export, so an exporter is meant to be
+ * kept. It is not thread-safe; exports running at the same time need an exporter each.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberExporter {
+    /**
+     * Size of each direct buffer, in bytes
+     */
+    public static final int BUFFER_SIZE = 1 << 18;
+
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final OperationTimer EXPORT_TIMER = OperationMetrics.timer("exportMembers");
+
+    // Width of every column in characters; a space separates each column from the next
+    private static final int[] WIDTHS = {5, 20, 20, 15, 35, 30, 10, 10, 20, 20, 20, 20, 20, 20};
+    private static final String[] HEADERS = {"ID", "Name", "Location", "Phone", "Email", "Membership Start Date",
+                                             "Plan", "Price", "Attendance", "Loyalty Points", "Active Status",
+                                             "Full Payment", "Discount Amount", "Net Amount Paid"};
+    // Most bytes the columns after the plan can take, with their separators and the line break
+    private static final int MAX_NUMBER_BYTES = 7 * 41 + 1;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final ByteBuffer buffer;
+    private final ByteBuffer compressed;
+    private final Deflater deflater;
+    private final CRC32 crc;
+
+    // Channel and compression of the running export
+    private WritableByteChannel channel;
+    private boolean gzip;
+    private long uncompressedBytes;
+
+    // Number format of the default locale, as printf uses it
+    private Locale locale;
+    private boolean asciiDigits;
+    private byte[] decimalSeparator;
+
+    /**
+     * Constructor to create an exporter with its buffers.
+     */
+    public MemberExporter() {
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.compressed = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * Writes the members to a file, replacing it only once the whole table is written.
+     * The table is written to a temporary file and forced to disk first, then moved over the old one,
+     * so a crash leaves either the old or the new file.
+     *
+     * @param file          File to write
+     * @param members       Members to write, in order
+     * @param gzip          True to compress the file with gzip
+     * @param progress      Called with the number of members written so far, returns false to cancel
+     * @return true if the file was written, false if it was cancelled
+     * @throws IOException if the file cannot be written
+     */
+    public boolean save(File file, List<GymMember> members, boolean gzip, IntPredicate progress)
+            throws IOException {
+        long start = System.nanoTime();
+        File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+                 FileChannel fileChannel = raf.getChannel()) {
+                if (!write(fileChannel, members, gzip, progress)) {
+                    return false;
+                }
+                fileChannel.force(true);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            EXPORT_TIMER.record(start);
+            return true;
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Writes the header and one row per member to a channel, which is left open.
+     *
+     * @param channel       Channel to write to
+     * @param members       Members to write, in order
+     * @param gzip          True to compress the table with gzip
+     * @param progress      Called with the number of members written so far, returns false to cancel
+     * @return true if every member was written, false if it was cancelled
+     * @throws IOException if the channel cannot be written
+     */
+    public boolean write(WritableByteChannel channel, List<GymMember> members, boolean gzip, IntPredicate progress)
+            throws IOException {
+        this.channel = channel;
+        this.gzip = gzip;
+        startFormat();
+        buffer.clear();
+        if (gzip) {
+            deflater.reset();
+            crc.reset();
+            uncompressedBytes = 0;
+            compressed.clear();
+            compressed.put(GZIP_HEADER);
+        }
+
+        try {
+            for (int i = 0; i < HEADERS.length; i++) {
+                putPadded(HEADERS[i], i);
+            }
+            putLineEnd();
+
+            for (int i = 0; i < members.size(); i++) {
+                if (i % PROGRESS_INTERVAL == 0 && !progress.test(i)) {
+                    return false;
+                }
+                GymMember member = members.get(i);
+                // The member's lock keeps its row consistent while other threads change members
+                synchronized (member) {
+                    putRow(member);
+                }
+            }
+
+            flush(false);
+            if (gzip) {
+                finishGzip();
+            }
+            return true;
+        } finally {
+            this.channel = null;
+        }
+    }
+
+    // One row in the column order of HEADERS
+    private void putRow(GymMember member) throws IOException {
+        // Read without keeping them in a member that has not used them yet
+        String[] contact = member.getContactFields();
+        String location = member.getLocation();
+        String startDate = member.getMembershipStartDate();
+        String plan = "";
+        double price = 0.0;
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            plan = regMember.getPlan();
+            price = regMember.getPrice();
+        } else if (member instanceof PremiumMember) {
+            plan = "premium";
+            price = ((PremiumMember) member).getPremiumCharge();
+        }
+
+        // A row with very long values is written in pieces, flushing whenever the buffer fills
+        int maxSize = 12 + maxStringBytes(contact[0], 1) + maxStringBytes(location, 2)
+                      + maxStringBytes(contact[1], 3) + maxStringBytes(contact[2], 4)
+                      + maxStringBytes(startDate, 5) + maxStringBytes(plan, 6) + MAX_NUMBER_BYTES;
+        ensureRemaining(Math.min(maxSize, BUFFER_SIZE));
+
+        // Columns by their index in HEADERS
+        putPaddedInt(member.getId(), false, 0);
+        putPadded(contact[0], 1);
+        putPadded(location, 2);
+        putPadded(contact[1], 3);
+        putPadded(contact[2], 4);
+        putPadded(startDate, 5);
+        putPadded(plan, 6);
+        putPaddedFixed(price, 1, 7);
+        putPaddedInt(member.getAttendance(), true, 8);
+        putPaddedFixed(member.getLoyaltyPoints(), 2, 9);
+        putPadded(member.getActiveStatus() ? "Active" : "Inactive", 10);
+        if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            putPadded(premMember.getIsFullPayment() ? "Yes" : "No", 11);
+            putPaddedAmount(premMember.getDiscountAmount(), 12);
+            putPaddedAmount(premMember.getPaidAmount(), 13);
+        } else {
+            putPadded("N/A", 11);
+            putPadded("N/A", 12);
+            putPadded("N/A", 13);
+        }
+        putLineEnd();
+    }
+
+    private void startFormat() {
+        locale = Locale.getDefault(Locale.Category.FORMAT);
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        asciiDigits = symbols.getZeroDigit() == '0';
+        decimalSeparator = String.valueOf(symbols.getDecimalSeparator()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Like %-<width>s: the text, then spaces up to the width of the column in characters
+    private void putPadded(String value, int column) throws IOException {
+        String text = value == null ? "null" : value;
+        int length = text.length();
+        ensureRemaining(Math.min(length * 3, BUFFER_SIZE));
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Rare outside ASCII, so the rest of the text goes through the UTF-8 encoder
+                putBytes(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+            if (!buffer.hasRemaining()) {
+                flush(false);
+            }
+            buffer.put((byte) c);
+        }
+        putPadding(column, length);
+    }
+
+    // Like %-<width>d when localized, otherwise like %-<width>s of the number
+    private void putPaddedInt(int value, boolean localized, int column) throws IOException {
+        if (value < 0 || localized && !asciiDigits) {
+            putPadded(localized ? String.format(locale, "%d", value) : String.valueOf(value), column);
+            return;
+        }
+        ensureRemaining(WIDTHS[column] + 12);
+        putPadding(column, putDigits(value));
+    }
+
+    // Like %-<width>.<decimals>f, for non-negative numbers with at most that many decimals
+    private void putPaddedFixed(double value, int decimals, int column) throws IOException {
+        long scale = decimals == 1 ? 10 : 100;
+        long scaled = Math.round(value * scale);
+        // The decimal scaled / scale is this double exactly when it converts back to it
+        if (!asciiDigits || !isPlain(value, 1e12) || scaled / (double) scale != value) {
+            putPadded(String.format(locale, "%." + decimals + "f", value), column);
+            return;
+        }
+        ensureRemaining(WIDTHS[column] + 21);
+        int length = putDigits(scaled / scale);
+        buffer.put(decimalSeparator);
+        length++;
+        long fraction = scaled % scale;
+        if (decimals == 2) {
+            buffer.put((byte) ('0' + fraction / 10));
+            fraction %= 10;
+            length++;
+        }
+        buffer.put((byte) ('0' + fraction));
+        length++;
+        putPadding(column, length);
+    }
+
+    // Like %-<width>s of String.valueOf(amount): the shortest decimals, at least one
+    private void putPaddedAmount(double amount, int column) throws IOException {
+        long paisa = Math.round(amount * 100);
+        // String.valueOf switches to exponents from 10^7
+        if (!isPlain(amount, 1e7) || paisa / 100.0 != amount) {
+            putPadded(String.valueOf(amount), column);
+            return;
+        }
+        ensureRemaining(WIDTHS[column] + 21);
+        int length = putDigits(paisa / 100) + 2;
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + paisa % 100 / 10));
+        if (paisa % 10 != 0) {
+            buffer.put((byte) ('0' + paisa % 10));
+            length++;
+        }
+        putPadding(column, length);
+    }
+
+    // Writes the ASCII digits of a non-negative number and returns how many there are
+    private int putDigits(long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+        return digits;
+    }
+
+    // Spaces after a value of the column, up to its width and then the separator of the next column
+    private void putPadding(int column, int length) throws IOException {
+        putSpaces(Math.max(0, WIDTHS[column] - length) + (column < WIDTHS.length - 1 ? 1 : 0));
+    }
+
+    private void putSpaces(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!buffer.hasRemaining()) {
+                flush(false);
+            }
+            buffer.put((byte) ' ');
+        }
+    }
+
+    private void putLineEnd() throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) '\n');
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush(false);
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensureRemaining(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush(false);
+        }
+    }
+
+    // Writes the buffered table to the channel, compressing it first with gzip
+    private void flush(boolean finish) throws IOException {
+        buffer.flip();
+        if (!gzip) {
+            writeFully(buffer);
+            buffer.clear();
+            return;
+        }
+
+        uncompressedBytes += buffer.remaining();
+        crc.update(buffer.duplicate());
+        deflater.setInput(buffer);
+        if (finish) {
+            deflater.finish();
+        }
+        while (finish ? !deflater.finished() : !deflater.needsInput()) {
+            deflater.deflate(compressed);
+            if (!compressed.hasRemaining()) {
+                compressed.flip();
+                writeFully(compressed);
+                compressed.clear();
+            }
+        }
+        buffer.clear();
+    }
+
+    // Compresses what is left and writes the gzip trailer: CRC-32 and length, little-endian
+    private void finishGzip() throws IOException {
+        flush(true);
+        if (compressed.remaining() < 8) {
+            compressed.flip();
+            writeFully(compressed);
+            compressed.clear();
+        }
+        compressed.order(ByteOrder.LITTLE_ENDIAN);
+        compressed.putInt((int) crc.getValue());
+        compressed.putInt((int) uncompressedBytes);
+        compressed.order(ByteOrder.BIG_ENDIAN);
+        compressed.flip();
+        writeFully(compressed);
+        compressed.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    // True for a number from +0.0 up to the limit, so not -0.0, NaN or infinite
+    private static boolean isPlain(double value, double limit) {
+        return Double.doubleToRawLongBits(value) >= 0 && value < limit;
+    }
+
+    // Most bytes a padded string of the column can take, with its separator
+    private static int maxStringBytes(String value, int column) {
+        int width = WIDTHS[column];
+        return 1 + (value == null ? width : Math.max(width, value.length() * 3));
+    }
+}
@@ -0,0 +1,317 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Parser that rebuilds gym members from the fixed-width text file written by GymGUI.saveToFile().
+ *
+ * The file is read one line at a time, so very large files are processed in constant memory.
+ * Columns are located by walking the line with a cursor instead of splitting it, and numbers
+ * are decoded straight from the characters of the line.
+ *
+ * Prices, attendance and loyalty points are written in the number format of the default locale,
+ * so they are read with that locale's digits and decimal separator, like MemberExporter writes them.
+ * Paid and discount amounts are always written with a '.'. The file is read as UTF-8.
+ *
+ * The text file does not store gender, date of birth, referral source, personal trainer or
+ * removal reason, so these are restored as empty values.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberFileParser {
+    /**
+     * Column widths used by GymGUI.saveToFile(), each column is followed by one space
+     */
+    static final int[] COLUMN_WIDTHS = {5, 20, 20, 15, 35, 30, 10, 10, 20, 20, 20, 20, 20, 20};
+
+    // Column positions
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int LOCATION = 2;
+    private static final int PHONE = 3;
+    private static final int EMAIL = 4;
+    private static final int START_DATE = 5;
+    private static final int PLAN = 6;
+    private static final int PRICE = 7;
+    private static final int ATTENDANCE = 8;
+    private static final int LOYALTY_POINTS = 9;
+    private static final int ACTIVE_STATUS = 10;
+    private static final int FULL_PAYMENT = 11;
+    private static final int DISCOUNT_AMOUNT = 12;
+    private static final int NET_AMOUNT_PAID = 13;
+
+    private static final int ATTENDANCE_LIMIT = 30;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    // Start and end of every column in the current line
+    private final int[] columnStart = new int[COLUMN_WIDTHS.length];
+    private final int[] columnEnd = new int[COLUMN_WIDTHS.length];
+
+    // Number format the file was written in
+    private final char decimalSeparator;
+    private final char zeroDigit;
+
+    private int rowsParsed;
+    private int rowsSkipped;
+
+    /**
+     * Constructor to create a parser for files written in the default locale's number format.
+     */
+    public MemberFileParser() {
+        this(Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Constructor to create a parser for files written in a locale's number format.
+     *
+     * @param locale        Locale the file was written in
+     */
+    public MemberFileParser(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.zeroDigit = symbols.getZeroDigit();
+    }
+
+    /**
+     * Returns the number of member rows parsed so far.
+     */
+    public int getRowsParsed() {
+        return rowsParsed;
+    }
+
+    /**
+     * Returns the number of rows that could not be parsed so far.
+     */
+    public int getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    /**
+     * Reads a member details file and passes each rebuilt member to the consumer.
+     *
+     * @param file          Member details file to read
+     * @param consumer      Receives each member in file order
+     * @throws IOException if the file cannot be read
+     */
+    public void parse(File file, Consumer<GymMember> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            parse(reader, consumer);
+        }
+    }
+
+    /**
+     * Reads member rows from the reader and passes each rebuilt member to the consumer.
+     *
+     * @param reader        Reader positioned at the start of the file
+     * @param consumer      Receives each member in file order
+     * @throws IOException if the reader fails
+     */
+    public void parse(BufferedReader reader, Consumer<GymMember> consumer) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            GymMember member = parseLine(line);
+            if (member != null) {
+                consumer.accept(member);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds one member from a line of the file.
+     * The header line, blank lines and rows that cannot be parsed return null.
+     *
+     * @param line      One line of the member details file
+     * @return Rebuilt member or null if the line is not a member row
+     */
+    public GymMember parseLine(String line) {
+        if (isBlank(line) || line.startsWith("ID ")) {
+            return null;
+        }
+
+        try {
+            if (!locateColumns(line)) {
+                rowsSkipped++;
+                return null;
+            }
+
+            int id = (int) parseLong(line, ID);
+            String name = text(line, NAME);
+            String location = text(line, LOCATION);
+            String phone = text(line, PHONE);
+            String email = text(line, EMAIL);
+            String startDate = text(line, START_DATE);
+            String plan = text(line, PLAN);
+            double price = parseDecimal(line, PRICE);
+            int attendance = (int) parseLong(line, ATTENDANCE);
+            double loyaltyPoints = parseDecimal(line, LOYALTY_POINTS);
+            boolean active = equalsText(line, ACTIVE_STATUS, "Active");
+
+            GymMember member;
+            if (plan.equals("premium")) {
+                PremiumMember premMember = new PremiumMember(id, name, location, phone, email,
+                                                             "", "", startDate, "");
+                boolean fullPayment = equalsText(line, FULL_PAYMENT, "Yes");
+                premMember.restorePayment(parseDecimal(line, NET_AMOUNT_PAID), fullPayment,
+                                          parseDecimal(line, DISCOUNT_AMOUNT));
+                member = premMember;
+            } else {
+                RegularMember regMember = new RegularMember(id, name, location, phone, email,
+                                                            "", "", startDate, "");
+                regMember.restorePlan(plan, price, attendance >= ATTENDANCE_LIMIT, "");
+                member = regMember;
+            }
+            member.restoreState(attendance, loyaltyPoints, active);
+            rowsParsed++;
+            return member;
+        } catch (NumberFormatException e) {
+            rowsSkipped++;
+            return null;
+        }
+    }
+
+    /**
+     * Finds the start and end of every column in the line.
+     * A value longer than its column pushes the following columns to the right,
+     * so a column ends at the first space after its width.
+     */
+    private boolean locateColumns(String line) {
+        int length = line.length();
+        int cursor = 0;
+        for (int column = 0; column < COLUMN_WIDTHS.length; column++) {
+            if (cursor > length) {
+                return false;
+            }
+            int end = Math.min(cursor + COLUMN_WIDTHS[column], length);
+            if (column == COLUMN_WIDTHS.length - 1) {
+                end = length;
+            } else {
+                while (end < length && line.charAt(end) != ' ') {
+                    end++;
+                }
+            }
+            columnStart[column] = cursor;
+            columnEnd[column] = trimEnd(line, cursor, end);
+            cursor = end + 1;
+        }
+        return true;
+    }
+
+    private String text(String line, int column) {
+        return line.substring(columnStart[column], columnEnd[column]);
+    }
+
+    private boolean equalsText(String line, int column, String expected) {
+        int length = columnEnd[column] - columnStart[column];
+        return length == expected.length() && line.startsWith(expected, columnStart[column]);
+    }
+
+    private long parseLong(String line, int column) {
+        int start = columnStart[column];
+        int end = columnEnd[column];
+        boolean negative = start < end && line.charAt(start) == '-';
+        if (negative) {
+            start++;
+        }
+        if (start == end || end - start > 18) {
+            throw new NumberFormatException(line.substring(columnStart[column], columnEnd[column]));
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = digit(line.charAt(i));
+            if (digit < 0) {
+                throw new NumberFormatException(line.substring(columnStart[column], columnEnd[column]));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a plain decimal like "18500.0", "150.00" or "150,00" without creating a substring.
+     * Both '.' and the locale's decimal separator are accepted.
+     * "N/A" columns read as 0 and anything unusual falls back to Double.parseDouble.
+     */
+    private double parseDecimal(String line, int column) {
+        int start = columnStart[column];
+        int end = columnEnd[column];
+        if (end - start == 3 && line.startsWith("N/A", start)) {
+            return 0;
+        }
+
+        boolean negative = start < end && line.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            int digit = digit(c);
+            if (digit >= 0) {
+                mantissa = mantissa * 10 + digit;
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if ((c == '.' || c == decimalSeparator) && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (i != end || digits == 0 || digits > 15 || fractionDigits > 15) {
+            return Double.parseDouble(toPlainNumber(line, start, end));
+        }
+        // Both values are exact doubles, so the division rounds the same way parseDouble does
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    // Value of an ASCII digit or a digit of the locale, -1 for anything else
+    private int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= zeroDigit && c <= zeroDigit + 9) {
+            return c - zeroDigit;
+        }
+        return -1;
+    }
+
+    // The number with the locale's digits and decimal separator in plain ASCII
+    private String toPlainNumber(String line, int start, int end) {
+        StringBuilder number = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            int digit = digit(c);
+            number.append(digit >= 0 ? (char) ('0' + digit) : c == decimalSeparator ? '.' : c);
+        }
+        return number.toString();
+    }
+
+    private static int trimEnd(String line, int start, int end) {
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,302 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server that lets kiosks and turnstiles use the member operations without the GUI.
+ *
+ * Requests are plain HTTP with parameters in the query string or a form body, and the
+ * response is the same message the GUI would show, with a status code for the outcome:
+ *
+ *   POST /members/regular          id, name, location, phone, email, gender, dob, startDate, referral
+ *   POST /members/premium          id, name, location, phone, email, gender, dob, startDate, trainer
+ *   POST /members/{id}/checkin
+ *   POST /members/{id}/activate
+ *   POST /members/{id}/deactivate
+ *   POST /members/{id}/payment     amount
+ *   POST /members/{id}/upgrade     plan
+ *
+ * Every request runs on its own virtual thread when the Java runtime has them, otherwise on a
+ * pool of platform threads. A change is answered only after its journal record is on disk, and
+ * because the journal writes records in batches, many concurrent requests share one disk write.
+ *
+ * Once the journal has failed, changes are refused with 503 before they are applied. A change
+ * whose own record could not be written is still answered with its result, since it took effect,
+ * with an X-Not-Durable header holding the error, so a kiosk never retries a change that was made.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberHttpServer {
+    /**
+     * Port used when none is given
+     */
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Header set on the answer of a change that was made but could not be written to the journal
+     */
+    public static final String NOT_DURABLE_HEADER = "X-Not-Durable";
+
+    // Connections waiting to be accepted
+    private static final int BACKLOG = 4096;
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final MemberService service;
+    private final MemberJournal journal;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor to create a server on a local port. The server starts with start().
+     *
+     * @param service       Member operations to expose
+     * @param journal       Journal to wait for before answering a change, or null
+     * @param port          Port to listen on, 0 picks a free port
+     * @throws IOException if the port cannot be opened
+     */
+    public MemberHttpServer(MemberService service, MemberJournal journal, int port) throws IOException {
+        this.service = service;
+        this.journal = journal;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.executor = createExecutor();
+        this.server.setExecutor(executor);
+        this.server.createContext("/members", this::handle);
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given time for running ones to finish.
+     *
+     * @param seconds       Seconds to wait for running requests
+     */
+    public void stop(int seconds) {
+        server.stop(seconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(seconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the server without the GUI on the members saved by the last session.
+     * The operation metrics are written to "OperationMetrics.txt" when it stops.
+     *
+     * @param args      Optional port number
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MemberRepository members = new MemberRepository();
+        MemberJournal journal = MemberJournal.restore(members, true);
+
+        MemberService service = new MemberService(members, new File(PaymentLedger.FILE_NAME));
+        File historyFile = new File(AttendanceHistory.FILE_NAME);
+        if (historyFile.exists()) {
+            service.getAttendanceHistory().load(historyFile);
+        }
+
+        MemberHttpServer server = new MemberHttpServer(service, journal, port);
+        SnapshotCompactor compactor = new SnapshotCompactor(members, journal);
+        compactor.setAttendanceHistory(service.getAttendanceHistory(), historyFile);
+        compactor.setLedger(service.getLedger());
+        compactor.start();
+        members.buildSearchIndexInBackground();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            compactor.stop();
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error writing journal: " + e.getMessage());
+            }
+            try {
+                service.getAttendanceHistory().save(historyFile);
+            } catch (IOException e) {
+                System.err.println("Error saving attendance history: " + e.getMessage());
+            }
+            try {
+                service.getLedger().close();
+            } catch (IOException e) {
+                System.err.println("Error writing payment ledger: " + e.getMessage());
+            }
+            try {
+                OperationMetrics.dump(new File(OperationMetrics.DUMP_FILE_NAME));
+            } catch (IOException e) {
+                System.err.println("Error saving metrics: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Serving " + members.size() + " members on http://localhost:" + server.getPort() + "/members");
+    }
+
+    // Virtual threads need Java 21, older runtimes get a pool sized for blocking on the journal
+    private static ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "Only POST is supported");
+                return;
+            }
+            // Refused before anything is applied, so a kiosk retrying later never applies a change twice
+            if (journal != null && journal.getFailure() != null) {
+                respond(exchange, 503, "Changes cannot be saved right now: " + journal.getFailure().getMessage());
+                return;
+            }
+
+            Map<String, String> params = parseParams(exchange);
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            MemberService.Result result = path.length == 3 ? add(path[2], params)
+                                        : path.length == 4 ? apply(path[2], path[3], params)
+                                        : null;
+            if (result == null) {
+                respond(exchange, 404, "Unknown request");
+                return;
+            }
+
+            if (result.isOk() && journal != null) {
+                try {
+                    journal.sync();
+                } catch (IOException e) {
+                    // The change took effect, so it is answered as done, but marked as not on disk
+                    exchange.getResponseHeaders().set(NOT_DURABLE_HEADER, e.getMessage());
+                }
+            }
+            respond(exchange, statusCode(result), result.getMessage());
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, "Please enter valid numbers!");
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Invalid request: " + e.getMessage());
+        } catch (IOException e) {
+            respond(exchange, 500, "Error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Any other failure still gets an answer instead of a dropped connection
+            System.err.println("Request " + exchange.getRequestURI() + " failed: " + e);
+            respond(exchange, 500, "Error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // POST /members/regular and /members/premium
+    private MemberService.Result add(String type, Map<String, String> params) {
+        int id = Integer.parseInt(params.getOrDefault("id", ""));
+        String name = params.get("name");
+        String location = params.get("location");
+        String phone = params.get("phone");
+        String email = params.get("email");
+        String gender = params.get("gender");
+        String dob = params.getOrDefault("dob", "");
+        String startDate = params.getOrDefault("startDate", "");
+
+        switch (type) {
+            case "regular":
+                return service.addRegularMember(id, name, location, phone, email, gender, dob, startDate,
+                                                params.getOrDefault("referral", ""));
+            case "premium":
+                return service.addPremiumMember(id, name, location, phone, email, gender, dob, startDate,
+                                                params.getOrDefault("trainer", ""));
+            default:
+                return null;
+        }
+    }
+
+    // POST /members/{id}/{action}
+    private MemberService.Result apply(String idText, String action, Map<String, String> params) {
+        int id = Integer.parseInt(idText);
+        switch (action) {
+            case "checkin":
+                return service.checkIn(id);
+            case "activate":
+                return service.activate(id);
+            case "deactivate":
+                return service.deactivate(id);
+            case "payment":
+                return service.payDueAmount(id, Double.parseDouble(params.getOrDefault("amount", "")));
+            case "upgrade":
+                return service.upgradePlan(id, params.get("plan"));
+            default:
+                return null;
+        }
+    }
+
+    private static int statusCode(MemberService.Result result) {
+        switch (result.getStatus()) {
+            case OK: return 200;
+            case INVALID: return 400;
+            case NOT_FOUND: return 404;
+            case CONFLICT: return 409;
+            default: return 500;
+        }
+    }
+
+    // Parameters from the query string and a form encoded body
+    private static Map<String, String> parseParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseInto(params, exchange.getRequestURI().getRawQuery());
+
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_SIZE + 1);
+            if (bytes.length > MAX_BODY_SIZE) {
+                throw new IOException("Request body is too large");
+            }
+            parseInto(params, new String(bytes, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void parseInto(Map<String, String> params, String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,610 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * Imports many members at once from a CSV or a JSON-lines file.
+ *
+ * A CSV file starts with a header row naming the columns; a JSON-lines file has one flat
+ * object per line. The format is told apart by the first line that is not blank: a line
+ * starting with '{' is JSON. Both use the same column names, ignoring case, spaces and
+ * underscores:
+ *
+ *   type (regular or premium), id, name, location, phone, email, gender, dob, startDate,
+ *   referralSource (regular members), personalTrainer (premium members)
+ *
+ * Dates are written like the GUI writes them ("1/January/2024") or as ISO dates ("2024-01-01").
+ *
+ * The lines are parsed and checked in parallel on the common fork/join pool, as every line
+ * is independent. Rows are then added in file order, in batches, through the repository,
+ * so every listener sees them as if they were added one at a time from the GUI and an ID
+ * that appears twice keeps its first row. A row that is invalid, or whose ID already exists,
+ * is skipped with the line number and the same message the GUI would show for it.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberImport {
+    /**
+     * Number of rows added between two progress updates
+     */
+    public static final int BATCH_SIZE = 10_000;
+
+    /**
+     * Number of rejected rows whose error is kept; more rejected rows are only counted
+     */
+    public static final int MAX_ERRORS = 1_000;
+
+    // Lines parsed by one fork/join task without splitting further
+    private static final int PARSE_CHUNK_LINES = 2_048;
+
+    private static final OperationTimer IMPORT_TIMER = OperationMetrics.timer("importMembers");
+
+    // Column of every value of a row
+    private static final int TYPE = 0;
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int LOCATION = 3;
+    private static final int PHONE = 4;
+    private static final int EMAIL = 5;
+    private static final int GENDER = 6;
+    private static final int DOB = 7;
+    private static final int START_DATE = 8;
+    private static final int REFERRAL_SOURCE = 9;
+    private static final int PERSONAL_TRAINER = 10;
+    private static final String[] COLUMN_NAMES = {"type", "id", "name", "location", "phone", "email", "gender",
+                                                  "dob", "startDate", "referralSource", "personalTrainer"};
+
+    private MemberImport() {
+    }
+
+    /**
+     * Imports every member of a CSV or JSON-lines file.
+     *
+     * @param members       Repository to add the members to
+     * @param file          File to import
+     * @return Number of imported and rejected rows, and the errors
+     * @throws IOException if the file cannot be read or a CSV header misses a column
+     */
+    public static Result importFile(MemberRepository members, File file) throws IOException {
+        return importFile(members, file, percent -> true);
+    }
+
+    /**
+     * Imports every member of a CSV or JSON-lines file.
+     * Rows added before a cancel stay in the repository.
+     *
+     * @param members       Repository to add the members to
+     * @param file          File to import
+     * @param progress      Called with the percentage done so far, returns false to cancel
+     * @return Number of imported and rejected rows, and the errors, or null if cancelled
+     * @throws IOException if the file cannot be read or a CSV header misses a column
+     */
+    public static Result importFile(MemberRepository members, File file, IntPredicate progress) throws IOException {
+        long start = System.nanoTime();
+        // First tenth of the progress is indexing the lines, up to half is parsing, the rest is adding
+        final long size = Math.max(1, file.length());
+        MappedLineFile lines = MappedLineFile.open(file, scanned -> progress.test((int) (scanned * 10 / size)));
+        if (lines == null) {
+            return null;
+        }
+
+        int lineCount = lines.getLineCount();
+        int first = 0;
+        while (first < lineCount && lines.getLine(first).isBlank()) {
+            first++;
+        }
+        if (first == lineCount) {
+            return new Result(0, 0, Collections.emptyList(), System.nanoTime() - start);
+        }
+        boolean json = lines.getLine(first).trim().startsWith("{");
+        int[] columns = null;
+        if (!json) {
+            columns = readHeader(lines.getLine(first), file);
+            first++;
+        }
+        if (!progress.test(10)) {
+            return null;
+        }
+
+        GymMember[] parsed = new GymMember[lineCount];
+        String[] errors = new String[lineCount];
+        ForkJoinPool.commonPool().invoke(new ParseTask(lines, json, columns, parsed, errors, first, lineCount));
+        if (!progress.test(50)) {
+            return null;
+        }
+
+        int imported = 0;
+        int rejected = 0;
+        List<RowError> kept = new ArrayList<>();
+        for (int batchStart = first; batchStart < lineCount; batchStart += BATCH_SIZE) {
+            int batchEnd = Math.min(lineCount, batchStart + BATCH_SIZE);
+            for (int i = batchStart; i < batchEnd; i++) {
+                String error = errors[i];
+                if (error == null && parsed[i] != null && !members.add(parsed[i])) {
+                    error = "Member ID already exists!";
+                }
+                if (error != null) {
+                    rejected++;
+                    if (kept.size() < MAX_ERRORS) {
+                        kept.add(new RowError(i + 1, error));
+                    }
+                } else if (parsed[i] != null) {
+                    imported++;
+                }
+                // Let the added member go once the repository holds it
+                parsed[i] = null;
+            }
+            if (!progress.test(50 + (int) (50L * (batchEnd - first) / (lineCount - first)))) {
+                return null;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        IMPORT_TIMER.record(start);
+        return new Result(imported, rejected, kept, elapsed);
+    }
+
+    // Column of every CSV field, or -1 for a field that is not imported
+    private static int[] readHeader(String line, File file) throws IOException {
+        List<String> names;
+        try {
+            names = splitCsv(line);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid header in " + file.getName() + ": " + e.getMessage());
+        }
+        int[] columns = new int[names.size()];
+        boolean[] found = new boolean[COLUMN_NAMES.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columnOf(names.get(i));
+            if (columns[i] >= 0) {
+                found[columns[i]] = true;
+            }
+        }
+        for (int column = 0; column <= START_DATE; column++) {
+            if (!found[column]) {
+                throw new IOException("Column " + COLUMN_NAMES[column] + " is missing in " + file.getName());
+            }
+        }
+        return columns;
+    }
+
+    // Column of a CSV header or JSON key, or -1
+    static int columnOf(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        switch (key.toString()) {
+            case "dateofbirth":
+                return DOB;
+            case "membershipstartdate":
+                return START_DATE;
+            case "referral":
+                return REFERRAL_SOURCE;
+            case "trainer":
+                return PERSONAL_TRAINER;
+            default:
+                for (int column = 0; column < COLUMN_NAMES.length; column++) {
+                    if (COLUMN_NAMES[column].equalsIgnoreCase(key.toString())) {
+                        return column;
+                    }
+                }
+                return -1;
+        }
+    }
+
+    // Checks one row and builds its member; throws with the message to report for an invalid row
+    private static GymMember toMember(String[] values) {
+        String type = trim(values[TYPE]);
+        if (type == null || !(type.equalsIgnoreCase("regular") || type.equalsIgnoreCase("premium"))) {
+            throw new IllegalArgumentException("Member type must be regular or premium!");
+        }
+        int id;
+        try {
+            id = Integer.parseInt(trim(values[ID]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Please enter a valid ID!");
+        }
+
+        String name = trim(values[NAME]);
+        String location = trim(values[LOCATION]);
+        String phone = trim(values[PHONE]);
+        String email = trim(values[EMAIL]);
+        String gender = trim(values[GENDER]);
+        MemberService.Result invalid = MemberService.checkDetails(name, location, phone, email, gender);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid.getMessage());
+        }
+        String dob = toMemberDate(values[DOB]);
+        if (dob == null) {
+            throw new IllegalArgumentException("Please enter a valid date of birth!");
+        }
+        String startDate = toMemberDate(values[START_DATE]);
+        if (startDate == null) {
+            throw new IllegalArgumentException("Please enter a valid membership start date!");
+        }
+
+        if (type.equalsIgnoreCase("regular")) {
+            return new RegularMember(id, name, location, phone, email, gender, dob, startDate,
+                                     nonNull(trim(values[REFERRAL_SOURCE])));
+        }
+        return new PremiumMember(id, name, location, phone, email, gender, dob, startDate,
+                                 nonNull(trim(values[PERSONAL_TRAINER])));
+    }
+
+    // Date as the GUI writes it, from either that format or an ISO date, or null if invalid
+    static String toMemberDate(String value) {
+        String text = trim(value);
+        if (text == null) {
+            return null;
+        }
+        int epochDay = MemberDates.toEpochDay(text);
+        if (epochDay == MemberDates.NO_DATE && text.indexOf('-') > 0) {
+            try {
+                epochDay = MemberDates.toEpochDay(LocalDate.parse(text));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return epochDay == MemberDates.NO_DATE ? null : MemberDates.format(epochDay);
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Splits a CSV line into its fields. A field may be quoted to hold commas,
+     * with a doubled quote for a quote inside it.
+     *
+     * @param line      CSV line without its line break
+     * @return Fields in order
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(COLUMN_NAMES.length);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Quoted field is not closed");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                // Anything between the closing quote and the comma is kept, like spaces
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? line.length() : comma;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++; // comma
+        }
+    }
+
+    /**
+     * Parses a flat JSON object into the values of its keys, by column.
+     * Strings, numbers, true and false are kept as text, null as a missing value;
+     * keys that are not columns are ignored.
+     *
+     * @param line      JSON object on one line
+     * @return Value of every column, null where missing
+     * @throws IllegalArgumentException if the line is not a flat JSON object
+     */
+    static String[] parseJson(String line) {
+        String[] values = new String[COLUMN_NAMES.length];
+        JsonReader reader = new JsonReader(line);
+        reader.expect('{');
+        if (reader.peek() == '}') {
+            reader.pos++;
+        } else {
+            while (true) {
+                String key = reader.readString();
+                reader.expect(':');
+                String value = reader.readValue();
+                int column = columnOf(key);
+                if (column >= 0) {
+                    values[column] = value;
+                }
+                char next = reader.next();
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new IllegalArgumentException("Expected ',' or '}' at column " + reader.pos);
+                }
+            }
+        }
+        if (reader.peek() != 0) {
+            throw new IllegalArgumentException("Unexpected text after the object at column " + (reader.pos + 1));
+        }
+        return values;
+    }
+
+    // Cursor over the text of one JSON line
+    private static final class JsonReader {
+        private final String text;
+        private int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        // Next character that is not white space, without consuming it, or 0 at the end
+        char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        char next() {
+            char c = peek();
+            if (c == 0) {
+                throw new IllegalArgumentException("Unexpected end of the line");
+            }
+            pos++;
+            return c;
+        }
+
+        void expect(char expected) {
+            if (next() != expected) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at column " + pos);
+            }
+        }
+
+        String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported at column " + (pos + 1));
+            }
+            int start = pos;
+            while (pos < text.length() && ",}".indexOf(text.charAt(pos)) < 0
+                   && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || isNumber(literal)) {
+                return literal;
+            }
+            throw new IllegalArgumentException("Invalid value at column " + (start + 1));
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) {
+                    throw new IllegalArgumentException("String is not closed");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw new IllegalArgumentException("String is not closed");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append(escaped);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Invalid \\u escape at column " + pos);
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid \\u escape at column " + pos);
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid escape at column " + pos);
+                }
+            }
+        }
+
+        private static boolean isNumber(String literal) {
+            if (literal.isEmpty()) {
+                return false;
+            }
+            try {
+                Double.parseDouble(literal);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    // Parses a range of lines, splitting it in halves until it is small enough
+    private static final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final MappedLineFile lines;
+        private final boolean json;
+        private final int[] columns;
+        private final GymMember[] parsed;
+        private final String[] errors;
+        private final int from;
+        private final int to;
+
+        ParseTask(MappedLineFile lines, boolean json, int[] columns, GymMember[] parsed, String[] errors,
+                  int from, int to) {
+            this.lines = lines;
+            this.json = json;
+            this.columns = columns;
+            this.parsed = parsed;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARSE_CHUNK_LINES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(lines, json, columns, parsed, errors, from, middle),
+                          new ParseTask(lines, json, columns, parsed, errors, middle, to));
+                return;
+            }
+            // Every line has its own slot, so the tasks never write the same element
+            for (int i = from; i < to; i++) {
+                String line = lines.getLine(i);
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    parsed[i] = toMember(json ? parseJson(line) : toValues(splitCsv(line)));
+                } catch (IllegalArgumentException e) {
+                    errors[i] = e.getMessage();
+                }
+            }
+        }
+
+        private String[] toValues(List<String> fields) {
+            if (fields.size() != columns.length) {
+                throw new IllegalArgumentException("Expected " + columns.length + " fields but found " + fields.size());
+            }
+            String[] values = new String[COLUMN_NAMES.length];
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i] >= 0) {
+                    values[columns[i]] = fields.get(i);
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * A row that was not imported, and why.
+     */
+    public static class RowError {
+        private final int line;
+        private final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        // Accessor (Getter) methods to retrieve the error
+        /**
+         * Returns the line number of the row, starting from 1.
+         */
+        public int getLine() {
+            return line;
+        }
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Result {
+        private final int imported;
+        private final int rejected;
+        private final List<RowError> errors;
+        private final long elapsedNanos;
+
+        Result(int imported, int rejected, List<RowError> errors, long elapsedNanos) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // Accessor (Getter) methods to retrieve the outcome
+        public int getImported() {
+            return imported;
+        }
+        public int getRejected() {
+            return rejected;
+        }
+        /**
+         * Returns the errors of the first MAX_ERRORS rejected rows, in file order.
+         */
+        public List<RowError> getErrors() {
+            return errors;
+        }
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        /**
+         * Returns the throughput of the import in rows per second.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (imported + rejected) * 1e9 / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of member changes.
+ *
+ * A new member is written as one record holding all its details, and every later change
+ * as a record of the state a change can alter (attendance, loyalty points, status, plan and
+ * payments), so replaying the journal in order on top of the last snapshot brings every
+ * member back to its latest state. Change records never need the name, phone or email,
+ * so recording a change of a lazily loaded member never reads the snapshot.
+ *
+ * Records are collected in memory and written by a background thread. While one batch
+ * is being written and forced to disk, new records collect in the next batch, so a
+ * burst of changes costs one sequential write and one fsync per batch (group commit).
+ *
+ * Each record is stored as its length, a CRC32 checksum and the payload, so a record
+ * torn by a crash is detected and dropped on replay.
+ *
+ * Records already saved in a snapshot are dropped with discardBefore(), which writes the
+ * remaining records to a new file and moves it over the journal, so a crash while discarding
+ * leaves either the old or the new journal and never a mix of both.
+ *
+ * If a batch cannot be written, the journal stops: later changes are no longer recorded,
+ * sync() throws the error and the failure handler is told once, so the application can
+ * warn that changes are no longer protected against a crash.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberJournal implements MemberListener {
+    /**
+     * Default journal file name
+     */
+    public static final String FILE_NAME = "MemberJournal.log";
+
+    // length + checksum
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+    // Bit set in the change kind of a record holding only the changing state
+    private static final byte STATE_RECORD = 0x40;
+    private static final int INITIAL_BATCH_SIZE = 64 * 1024;
+
+    private static final OperationTimer WRITE_TIMER = OperationMetrics.timer("journalWrite");
+    private static final OperationTimer SYNC_TIMER = OperationMetrics.timer("journalSync");
+    private static final OperationTimer DISCARD_TIMER = OperationMetrics.timer("journalDiscard");
+    private static final OperationTimer REPLAY_TIMER = OperationMetrics.timer("journalReplay");
+
+    private final File file;
+    // Replaced when records are discarded, guarded by ioLock
+    private FileChannel channel;
+    private final Thread writer;
+    private final Object lock = new Object();
+    // Held while a batch is written so truncating never races with a write
+    private final Object ioLock = new Object();
+
+    // Batch collecting new records and the batch being written
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+
+    // Number of records appended and number of records forced to disk
+    private long appendedCount;
+    private long durableCount;
+    // File position just after the last appended record
+    private long appendedBytes;
+    // Bytes discarded from the start of the file since the journal was opened
+    private long discardedBytes;
+
+    private boolean closed;
+    private IOException failure;
+    private Consumer<IOException> failureHandler;
+
+    /**
+     * Constructor to open (or create) a journal file for appending.
+     *
+     * @param file      Journal file
+     * @throws IOException if the file cannot be opened
+     */
+    public MemberJournal(File file) throws IOException {
+        this.file = file;
+        this.channel = open(file);
+        this.appendedBytes = channel.size();
+        this.pending = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+        this.writing = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+        this.writer = new Thread(this::writeBatches, "member-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends a record with the member's state after the change.
+     * It is called while the member's lock is held, so the record matches the change
+     * and records of one member are appended in the order of its changes.
+     * The record becomes durable with the next batch, sync() waits for it.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        // Only a new member needs its details; it was just created, so they are in memory
+        boolean added = change == MemberChange.ADDED;
+        String[] contact = added ? member.getContactFields() : null;
+        int payloadSize = 1 + (added ? MemberSnapshot.maxEncodedSize(member, contact)
+                                     : MemberSnapshot.maxStateSize(member));
+        synchronized (lock) {
+            // After a failure nothing more can be written, so records are not collected either
+            if (closed || failure != null) {
+                return;
+            }
+            ensureCapacity(RECORD_HEADER_SIZE + payloadSize);
+
+            int recordStart = pending.position();
+            pending.position(recordStart + RECORD_HEADER_SIZE);
+            if (added) {
+                pending.put((byte) change.ordinal());
+                MemberSnapshot.encode(pending, member, contact);
+            } else {
+                pending.put((byte) (STATE_RECORD | change.ordinal()));
+                MemberSnapshot.encodeState(pending, member);
+            }
+            int payloadEnd = pending.position();
+
+            int length = payloadEnd - recordStart - RECORD_HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(pending.array(), recordStart + RECORD_HEADER_SIZE, length);
+            pending.putInt(recordStart, length);
+            pending.putInt(recordStart + 4, (int) crc.getValue());
+
+            appendedCount++;
+            appendedBytes += RECORD_HEADER_SIZE + length;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far has been written and forced to disk.
+     *
+     * @throws IOException if writing the journal failed
+     */
+    public void sync() throws IOException {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            long target = appendedCount;
+            while (durableCount < target && failure == null && writer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+            SYNC_TIMER.record(start);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Returns the error that stopped the journal, or null while it is writing.
+     */
+    public IOException getFailure() {
+        synchronized (lock) {
+            return failure;
+        }
+    }
+
+    /**
+     * Sets the handler told when writing the journal fails. It is called once, on the
+     * journal's writer thread, or right away if the journal has already failed.
+     *
+     * @param handler       Handler of the error that stopped the journal
+     */
+    public void setFailureHandler(Consumer<IOException> handler) {
+        IOException failed;
+        synchronized (lock) {
+            failureHandler = handler;
+            failed = failure;
+        }
+        if (failed != null) {
+            handler.accept(failed);
+        }
+    }
+
+    /**
+     * Returns the position just after the last appended record, counted from the first
+     * record ever written to the journal so it stays valid after records are discarded.
+     * Taken before a copy of the roster, it marks which records that copy already contains.
+     */
+    public long checkpoint() {
+        synchronized (lock) {
+            return discardedBytes + appendedBytes;
+        }
+    }
+
+    /**
+     * Returns the size of the journal file in bytes, including records not yet written.
+     */
+    public long getSize() {
+        synchronized (lock) {
+            return appendedBytes;
+        }
+    }
+
+    /**
+     * Discards the records before a checkpoint, used after a snapshot of the roster
+     * taken at that checkpoint has been saved. Records appended after the checkpoint
+     * are kept and become the start of the journal.
+     *
+     * @param checkpoint        Position returned by checkpoint()
+     * @throws IOException if the journal cannot be rewritten
+     */
+    public void discardBefore(long checkpoint) throws IOException {
+        sync();
+        long start = System.nanoTime();
+        synchronized (ioLock) {
+            long discard;
+            synchronized (lock) {
+                discard = checkpoint - discardedBytes;
+            }
+            long size = channel.size();
+            if (discard <= 0 || discard > size) {
+                // Already discarded by a later checkpoint
+                return;
+            }
+
+            File directory = file.getAbsoluteFile().getParentFile();
+            File temp = File.createTempFile(file.getName(), ".tmp", directory);
+            boolean moved = false;
+            try {
+                try (RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+                     FileChannel tempChannel = raf.getChannel()) {
+                    // Copied by the channels in chunks, so a tail of any size needs no buffer
+                    long position = discard;
+                    while (position < size) {
+                        long copied = channel.transferTo(position, size - position, tempChannel);
+                        if (copied <= 0) {
+                            throw new IOException("Could not copy the journal: " + file.getName());
+                        }
+                        position += copied;
+                    }
+                    tempChannel.force(false);
+                }
+                // Closed first, as an open file cannot be replaced on every platform
+                channel.close();
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                               StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                moved = true;
+                MemberSnapshot.syncDirectory(directory);
+            } finally {
+                if (!moved) {
+                    temp.delete();
+                }
+                if (!channel.isOpen()) {
+                    channel = open(file);
+                }
+            }
+
+            synchronized (lock) {
+                appendedBytes -= discard;
+                discardedBytes += discard;
+            }
+            DISCARD_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Writes all remaining records and closes the journal.
+     *
+     * @throws IOException if writing the journal failed
+     */
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (ioLock) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Restores the members saved in the last snapshot "MemberDetails.dat" and replays
+     * the changes recorded in "MemberJournal.log" since then. It then opens the journal
+     * and registers it with the repository so every new change is recorded.
+     * Temporary files left by a save or a compaction that was cut off by a crash are deleted.
+     *
+     * @param members       Empty repository to restore the members into
+     * @return The opened journal
+     * @throws IOException if the snapshot or the journal cannot be read
+     */
+    public static MemberJournal restore(MemberRepository members) throws IOException {
+        return restore(members, false);
+    }
+
+    /**
+     * Restores the members like restore(), optionally leaving their name, phone and email
+     * in the snapshot until first used (see MemberSnapshot.loadLazy()). A lazy restore
+     * reads far less of a large roster before the first check-in and keeps less of it in memory.
+     *
+     * @param members       Empty repository to restore the members into
+     * @param lazy          True to leave name, phone and email in the snapshot
+     * @return The opened journal
+     * @throws IOException if the snapshot or the journal cannot be read
+     */
+    public static MemberJournal restore(MemberRepository members, boolean lazy) throws IOException {
+        File snapshot = new File(MemberSnapshot.FILE_NAME);
+        deleteTempFiles(snapshot);
+        deleteTempFiles(new File(FILE_NAME));
+        if (snapshot.exists()) {
+            List<GymMember> saved = lazy ? MemberSnapshot.loadLazy(snapshot) : MemberSnapshot.load(snapshot);
+            for (GymMember member : saved) {
+                members.restore(member);
+            }
+        }
+        replay(new File(FILE_NAME), members);
+
+        MemberJournal journal = new MemberJournal(new File(FILE_NAME));
+        members.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * Replays a journal file on top of the members already in the repository.
+     * Replay stops at the first incomplete or damaged record, which is cut off the file
+     * so that new records are appended after the last good one.
+     *
+     * @param file          Journal file
+     * @param members       Repository holding the last snapshot
+     * @return Number of records replayed
+     * @throws IOException if the file cannot be read
+     */
+    public static int replay(File file, MemberRepository members) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Journal file is too large: " + file.getName());
+            }
+            // Read rather than mapped, so the file can be truncated afterwards on every platform
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            }
+            buffer.flip();
+            byte[] scratch = new byte[256];
+            CRC32 crc = new CRC32();
+            int replayed = 0;
+            int validEnd = 0;
+
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                try {
+                    // Full records are the ADDED ones, and every record of older journals
+                    if ((payload.get() & STATE_RECORD) != 0) {
+                        MemberSnapshot.applyState(payload, scratch, members);
+                    } else {
+                        members.restore(MemberSnapshot.decode(payload, scratch));
+                    }
+                } catch (BufferUnderflowException | IllegalStateException e) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                validEnd = buffer.position();
+                replayed++;
+            }
+
+            if (validEnd < size) {
+                channel.truncate(validEnd);
+            }
+            return replayed;
+        } finally {
+            REPLAY_TIMER.record(start);
+        }
+    }
+
+    // Deletes the temporary files a save of the file leaves behind when it is cut off
+    private static void deleteTempFiles(File file) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        File[] temps = directory.listFiles((dir, name) -> name.startsWith(file.getName()) && name.endsWith(".tmp"));
+        if (temps != null) {
+            for (File temp : temps) {
+                temp.delete();
+            }
+        }
+    }
+
+    // Opens the journal file for appending after its last byte
+    private static FileChannel open(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        return channel;
+    }
+
+    // Grows the pending batch so a record of the given size fits
+    private void ensureCapacity(int recordSize) {
+        if (pending.remaining() >= recordSize) {
+            return;
+        }
+        int newCapacity = Math.max(pending.capacity() * 2, pending.position() + recordSize);
+        ByteBuffer larger = ByteBuffer.allocate(newCapacity);
+        pending.flip();
+        larger.put(pending);
+        pending = larger;
+    }
+
+    // Background loop that writes each batch and forces it to disk
+    private void writeBatches() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0 && closed) {
+                    return;
+                }
+            }
+
+            synchronized (ioLock) {
+                long batchCount;
+                synchronized (lock) {
+                    if (pending.position() == 0) {
+                        continue;
+                    }
+                    ByteBuffer full = pending;
+                    pending = writing;
+                    pending.clear();
+                    writing = full;
+                    batchCount = appendedCount;
+                }
+
+                long start = System.nanoTime();
+                try {
+                    writing.flip();
+                    while (writing.hasRemaining()) {
+                        channel.write(writing);
+                    }
+                    channel.force(false);
+                    WRITE_TIMER.record(start);
+                } catch (IOException e) {
+                    Consumer<IOException> handler;
+                    synchronized (lock) {
+                        failure = e;
+                        // The records collected meanwhile can never be written
+                        pending = ByteBuffer.allocate(0);
+                        handler = failureHandler;
+                        lock.notifyAll();
+                    }
+                    System.err.println("Error writing the journal: " + e.getMessage());
+                    if (handler != null) {
+                        handler.accept(e);
+                    }
+                    return;
+                }
+
+                synchronized (lock) {
+                    durableCount = Math.max(durableCount, batchCount);
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+}
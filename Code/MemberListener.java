@@ -0,0 +1,18 @@
+/**
+ * Listener that is told every time a gym member changes.
+ * 
+ * It is called right after the change is applied to the member, on the thread that made the change
+ * and while that thread still holds the member's lock. Listeners must therefore be quick and must
+ * not wait for other threads that could need the same member.
+ * 
+ * @author Sadikshya Karki
+ */
+public interface MemberListener {
+    /**
+     * Called after a member has been changed.
+     *
+     * @param member        Member that changed
+     * @param change        Kind of change that was applied
+     */
+    void memberChanged(GymMember member, MemberChange change);
+}
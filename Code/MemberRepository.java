@@ -0,0 +1,380 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Repository that stores gym members and finds them by their ID.
+ *
+ * Members are kept in the order they were added for display and saving,
+ * and an int-keyed hash index gives constant time lookups and duplicate checks by ID.
+ * Search indexes find members by email, phone number and the start of a name,
+ * and sorted date indexes find members by membership start date and birthday.
+ * The search indexes are built by the first search or by buildSearchIndex(), so restoring
+ * a large roster does not need every member's name, phone and email.
+ *
+ * The repository can be used from several threads at once. Adding members takes a write lock,
+ * while lookups first read without locking and only take the read lock if a member was
+ * added at the same time.
+ *
+ * The repository is the listener of every member it stores and passes each change
+ * on to the listeners registered with addListener().
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberRepository implements Iterable<GymMember>, MemberListener {
+    // Members in insertion order and the ID index over them
+    private final ArrayList<GymMember> members;
+    private final IntHashMap<GymMember> membersById;
+    // Built by the first search, null until then
+    private volatile MemberSearchIndex searchIndex;
+    private final Object searchIndexBuild = new Object();
+    private final MemberDateIndex byStartDate;
+    private final MemberDateIndex byBirthday;
+    private final StampedLock lock;
+
+    // Listeners told about every member change
+    private final CopyOnWriteArrayList<MemberListener> listeners;
+
+    /**
+     * Constructor to create an empty member repository.
+     */
+    public MemberRepository() {
+        this.members = new ArrayList<>();
+        this.membersById = new IntHashMap<>();
+        this.byStartDate = new MemberDateIndex();
+        this.byBirthday = new MemberDateIndex();
+        this.lock = new StampedLock();
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Adds a member if no other member has the same ID.
+     *
+     * @param member        Member to add
+     * @return true if the member was added, false if the ID already exists
+     */
+    public boolean add(GymMember member) {
+        // Holding the member's lock makes sure listeners hear about the new member
+        // before any change another thread makes to it right after it is found
+        synchronized (member) {
+            long stamp = lock.writeLock();
+            try {
+                if (membersById.putIfAbsent(member.getId(), member) != null) {
+                    return false;
+                }
+                members.add(member);
+                index(member);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            member.setListener(this);
+            memberChanged(member, MemberChange.ADDED);
+            return true;
+        }
+    }
+
+    /**
+     * Puts back a saved copy of a member without notifying the listeners.
+     * If the member already exists its details are replaced by the saved ones,
+     * otherwise the saved copy is added.
+     *
+     * @param saved     Saved copy of the member
+     */
+    public void restore(GymMember saved) {
+        GymMember existing;
+        long stamp = lock.writeLock();
+        try {
+            existing = membersById.putIfAbsent(saved.getId(), saved);
+            if (existing == null) {
+                members.add(saved);
+                index(saved);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        if (existing == null) {
+            saved.setListener(this);
+        } else {
+            existing.restoreFrom(saved);
+        }
+    }
+
+    // Adds a new member to the search and date indexes, called under the write lock
+    private void index(GymMember member) {
+        if (searchIndex != null) {
+            searchIndex.add(member);
+        }
+        byStartDate.add(member, member.getMembershipStartDay());
+        int dob = member.getDobEpochDay();
+        byBirthday.add(member, dob == MemberDates.NO_DATE ? dob : MemberDates.birthdayKey(dob));
+    }
+
+    /**
+     * Registers a listener that is told about every change of every member.
+     *
+     * @param listener      Listener to register
+     */
+    public void addListener(MemberListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener      Listener to remove
+     */
+    public void removeListener(MemberListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Passes a member change on to all registered listeners.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        for (MemberListener listener : listeners) {
+            listener.memberChanged(member, change);
+        }
+    }
+
+    /**
+     * Returns the member with the given ID or null if there is none.
+     *
+     * @param id        ID of the gym member
+     */
+    public GymMember findById(int id) {
+        long stamp = lock.tryOptimisticRead();
+        GymMember member = null;
+        try {
+            member = membersById.get(id);
+        } catch (RuntimeException e) {
+            // The index was being resized while it was read, read it again under the lock
+            stamp = 0;
+        }
+        if (lock.validate(stamp)) {
+            return member;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return membersById.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns true if a member with the given ID exists.
+     *
+     * @param id        ID of the gym member
+     */
+    public boolean contains(int id) {
+        return findById(id) != null;
+    }
+
+    /**
+     * Returns the members with the email address, ignoring case.
+     *
+     * @param email     Email address to look for
+     */
+    public List<GymMember> findByEmail(String email) {
+        return querySearch(index -> index.findByEmail(email));
+    }
+
+    /**
+     * Returns the members with the phone number, comparing digits only.
+     *
+     * @param phone     Phone number to look for
+     */
+    public List<GymMember> findByPhone(String phone) {
+        return querySearch(index -> index.findByPhone(phone));
+    }
+
+    /**
+     * Returns the members with a name word starting with the prefix, ignoring case.
+     *
+     * @param prefix        Start of a name word, or several separated by spaces
+     * @param limit         Maximum number of members to return
+     */
+    public List<GymMember> findByNamePrefix(String prefix, int limit) {
+        return querySearch(index -> index.findByNamePrefix(prefix, limit));
+    }
+
+    /**
+     * Returns the members whose membership started between two dates, both included,
+     * in start date order.
+     *
+     * @param from      First start date
+     * @param to        Last start date
+     * @param limit     Maximum number of members to return
+     */
+    public List<GymMember> findByStartDate(LocalDate from, LocalDate to, int limit) {
+        return queryDates(byStartDate, index -> index.find(MemberDates.toEpochDay(from), MemberDates.toEpochDay(to), limit));
+    }
+
+    /**
+     * Returns the number of members whose membership started between two dates, both included.
+     *
+     * @param from      First start date
+     * @param to        Last start date
+     */
+    public int countByStartDate(LocalDate from, LocalDate to) {
+        return queryDates(byStartDate, index -> index.count(MemberDates.toEpochDay(from), MemberDates.toEpochDay(to)));
+    }
+
+    /**
+     * Returns the members whose birthday falls between two dates, both included,
+     * in birthday order starting from the first date. The range may cross the end of a year.
+     *
+     * @param from      First day
+     * @param to        Last day
+     * @param limit     Maximum number of members to return
+     */
+    public List<GymMember> findByBirthday(LocalDate from, LocalDate to, int limit) {
+        if (to.isBefore(from)) {
+            return new ArrayList<>();
+        }
+        if (!to.isBefore(from.plusYears(1).minusDays(1))) {
+            // The range covers every day of the year
+            return queryDates(byBirthday, index -> index.find(Integer.MIN_VALUE, Integer.MAX_VALUE, limit));
+        }
+        int fromKey = MemberDates.birthdayKey(from.getMonth(), from.getDayOfMonth());
+        int toKey = MemberDates.birthdayKey(to.getMonth(), to.getDayOfMonth());
+        return queryDates(byBirthday, index -> {
+            if (fromKey <= toKey) {
+                return index.find(fromKey, toKey, limit);
+            }
+            // Late December to early January
+            List<GymMember> found = index.find(fromKey, Integer.MAX_VALUE, limit);
+            found.addAll(index.find(Integer.MIN_VALUE, toKey, limit - found.size()));
+            return found;
+        });
+    }
+
+    /**
+     * Builds the search indexes if no search has built them yet. Members are indexed without
+     * holding the repository lock, so check-ins and lookups by ID go on meanwhile; only the
+     * members added during the build are indexed under the lock.
+     */
+    public void buildSearchIndex() {
+        synchronized (searchIndexBuild) {
+            if (searchIndex != null) {
+                return;
+            }
+            List<GymMember> indexed = getAll();
+            MemberSearchIndex built = new MemberSearchIndex();
+            for (GymMember member : indexed) {
+                built.add(member);
+            }
+
+            long stamp = lock.writeLock();
+            try {
+                // Members are only ever appended, so the ones added meanwhile are at the end
+                for (int i = indexed.size(); i < members.size(); i++) {
+                    built.add(members.get(i));
+                }
+                searchIndex = built;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Starts building the search indexes on a background thread, so the first search
+     * after a lazy restore does not wait for them.
+     */
+    public void buildSearchIndexInBackground() {
+        Thread builder = new Thread(this::buildSearchIndex, "search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // Runs a query on the search indexes, building them first if this is the first search
+    private <T> T querySearch(Function<MemberSearchIndex, T> query) {
+        if (searchIndex == null) {
+            buildSearchIndex();
+        }
+        long stamp = lock.readLock();
+        try {
+            return query.apply(searchIndex);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Runs a query on a date index, sorting in the members added since the last query first
+    private <T> T queryDates(MemberDateIndex index, Function<MemberDateIndex, T> query) {
+        long stamp = lock.readLock();
+        try {
+            if (index.needsSort()) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
+                }
+                stamp = writeStamp;
+                index.sort();
+            }
+            return query.apply(index);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * Returns the member at the given position in insertion order.
+     *
+     * @param index     Position of the member
+     */
+    public GymMember get(int index) {
+        long stamp = lock.readLock();
+        try {
+            return members.get(index);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of members stored.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return members.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns true if there are no members.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a copy of all members in insertion order.
+     * Members added afterwards are not in the copy.
+     */
+    public List<GymMember> getAll() {
+        long stamp = lock.readLock();
+        try {
+            return new ArrayList<>(members);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<GymMember> iterator() {
+        return getAll().iterator();
+    }
+}
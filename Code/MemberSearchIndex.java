@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indexes that find members by email, phone number or the start of a name.
+ *
+ * Emails and phone numbers are kept in hash maps, so an exact lookup takes constant time.
+ * Every word of a name is kept in a sorted map, so a prefix search jumps straight to the
+ * first matching word and only visits the matches ("kar" finds "Sadikshya Karki").
+ * Emails and names are compared ignoring case, phone numbers by their digits only.
+ *
+ * A member's name, email and phone never change after it is added, so members only
+ * need to be indexed once. Each key maps to one member, or to a list of members
+ * when several share it, so the common unique key costs no extra list.
+ *
+ * The index is not thread-safe; the member repository guards it with its lock.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberSearchIndex {
+    // Compiled once, as every member added and every search splits a name
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Object> byEmail;
+    private final Map<String, Object> byPhone;
+    private final TreeMap<String, Object> byNameWord;
+
+    /**
+     * Constructor to create empty indexes.
+     */
+    public MemberSearchIndex() {
+        this.byEmail = new HashMap<>();
+        this.byPhone = new HashMap<>();
+        this.byNameWord = new TreeMap<>();
+    }
+
+    /**
+     * Adds a member to every index.
+     *
+     * @param member        Member to index
+     */
+    public void add(GymMember member) {
+        // Read without keeping them in a member that has not used them yet
+        String[] contact = member.getContactFields();
+        put(byEmail, normalizeEmail(contact[2]), member);
+        put(byPhone, normalizePhone(contact[1]), member);
+        for (String word : nameWords(contact[0])) {
+            put(byNameWord, word, member);
+        }
+    }
+
+    /**
+     * Returns the members with the email address, ignoring case.
+     *
+     * @param email     Email address to look for
+     */
+    public List<GymMember> findByEmail(String email) {
+        return toList(byEmail.get(normalizeEmail(email)));
+    }
+
+    /**
+     * Returns the members with the phone number, comparing digits only.
+     *
+     * @param phone     Phone number to look for
+     */
+    public List<GymMember> findByPhone(String phone) {
+        return toList(byPhone.get(normalizePhone(phone)));
+    }
+
+    /**
+     * Returns the members with a name word starting with the prefix, ignoring case,
+     * in the order of the matching words. A prefix of several words matches names
+     * whose words start with them in the same order ("sad kar" finds "Sadikshya Karki").
+     *
+     * @param prefix        Start of a name word, or several
+     * @param limit         Maximum number of members to return
+     */
+    public List<GymMember> findByNamePrefix(String prefix, int limit) {
+        String[] words = nameWords(prefix);
+        if (words.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Members matching the first word, then filtered by the remaining words
+        Set<GymMember> found = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : byNameWord.tailMap(words[0]).entrySet()) {
+            if (!entry.getKey().startsWith(words[0])) {
+                break;
+            }
+            for (GymMember member : members(entry.getValue())) {
+                if (words.length == 1 || matchesWords(member.getName(), words)) {
+                    found.add(member);
+                    if (found.size() == limit) {
+                        return new ArrayList<>(found);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    // Stores the member under the key, next to members already there.
+    // A member is indexed all at once, so a repeated name word can only repeat the last member.
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> index, String key, GymMember member) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Object existing = index.get(key);
+        if (existing == null) {
+            index.put(key, member);
+        } else if (existing instanceof GymMember) {
+            if (existing != member) {
+                ArrayList<GymMember> shared = new ArrayList<>(2);
+                shared.add((GymMember) existing);
+                shared.add(member);
+                index.put(key, shared);
+            }
+        } else {
+            ArrayList<GymMember> shared = (ArrayList<GymMember>) existing;
+            if (shared.get(shared.size() - 1) != member) {
+                shared.add(member);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<GymMember> toList(Object entry) {
+        if (entry instanceof GymMember) {
+            List<GymMember> list = new ArrayList<>(1);
+            list.add((GymMember) entry);
+            return list;
+        }
+        return entry == null ? new ArrayList<>() : new ArrayList<>((ArrayList<GymMember>) entry);
+    }
+
+    // Members stored under a key, without copying
+    @SuppressWarnings("unchecked")
+    private static List<GymMember> members(Object entry) {
+        return entry instanceof GymMember ? List.of((GymMember) entry) : (List<GymMember>) entry;
+    }
+
+    // True if later name words start with the remaining search words, in order
+    private static boolean matchesWords(String name, String[] words) {
+        String[] nameWords = nameWords(name);
+        int next = 0;
+        for (int i = 0; i < nameWords.length && next < words.length; i++) {
+            if (nameWords[i].startsWith(words[next])) {
+                next++;
+            }
+        }
+        return next == words.length;
+    }
+
+    static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    static String[] nameWords(String name) {
+        if (name == null || name.isBlank()) {
+            return new String[0];
+        }
+        return WHITESPACE.split(name.trim().toLowerCase(Locale.ROOT));
+    }
+}
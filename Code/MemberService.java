@@ -0,0 +1,471 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Member operations shared by every client of the gym, such as the GUI and the HTTP server.
+ *
+ * Each operation checks its input, applies the change to the member and returns a result
+ * with the outcome and the message to show. A member's checks and change are done while
+ * holding the member's lock, so concurrent requests for the same member never act on a
+ * state that another request changes halfway. Every operation records its latency
+ * in a timer of OperationMetrics.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberService {
+    /**
+     * Outcome of a member operation
+     */
+    public enum Status {
+        /** The operation was applied */
+        OK,
+        /** The input was missing or invalid */
+        INVALID,
+        /** There is no member with the ID */
+        NOT_FOUND,
+        /** The member's current state does not allow the operation */
+        CONFLICT
+    }
+
+    private static final OperationTimer ADD_REGULAR_TIMER = OperationMetrics.timer("addRegularMember");
+    private static final OperationTimer ADD_PREMIUM_TIMER = OperationMetrics.timer("addPremiumMember");
+    private static final OperationTimer CHECK_IN_TIMER = OperationMetrics.timer("markAttendance");
+    private static final OperationTimer ACTIVATE_TIMER = OperationMetrics.timer("activateMembership");
+    private static final OperationTimer DEACTIVATE_TIMER = OperationMetrics.timer("deactivateMembership");
+    private static final OperationTimer PAY_TIMER = OperationMetrics.timer("payDueAmount");
+    private static final OperationTimer UPGRADE_TIMER = OperationMetrics.timer("upgradePlan");
+    private static final OperationTimer REVERT_TIMER = OperationMetrics.timer("revertMember");
+    private static final OperationTimer DISCOUNT_TIMER = OperationMetrics.timer("calculateDiscount");
+    private static final OperationTimer SEARCH_TIMER = OperationMetrics.timer("search");
+
+    private final MemberRepository members;
+    private final PaymentLedger ledger;
+    private final RosterStatistics statistics;
+    private final UpgradeCandidates upgradeCandidates;
+    private final AttendanceHistory attendanceHistory;
+
+    /**
+     * Constructor to create a service over the member repository.
+     * The payment ledger, the roster statistics and the upgrade candidates start from
+     * the members already in the repository; the attendance history starts empty
+     * and can be filled with AttendanceHistory.load().
+     *
+     * @param members       Repository holding the members
+     */
+    public MemberService(MemberRepository members) {
+        this(members, new PaymentLedger(members));
+    }
+
+    /**
+     * Constructor to create a service whose payment ledger continues the entries saved in a file.
+     *
+     * @param members       Repository holding the members
+     * @param ledgerFile    Payment ledger file, created if it does not exist
+     * @throws IOException if the ledger file cannot be read
+     */
+    public MemberService(MemberRepository members, File ledgerFile) throws IOException {
+        this(members, new PaymentLedger(members, ledgerFile));
+    }
+
+    private MemberService(MemberRepository members, PaymentLedger ledger) {
+        this.members = members;
+        this.ledger = ledger;
+        this.statistics = new RosterStatistics(members);
+        this.upgradeCandidates = new UpgradeCandidates(members);
+        this.attendanceHistory = new AttendanceHistory(members);
+    }
+
+    /**
+     * Returns the repository the service works on.
+     */
+    public MemberRepository getMembers() {
+        return members;
+    }
+
+    /**
+     * Returns the ledger of premium membership payments.
+     */
+    public PaymentLedger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Returns the live roster statistics.
+     */
+    public RosterStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the regular members eligible for a plan upgrade.
+     */
+    public UpgradeCandidates getUpgradeCandidates() {
+        return upgradeCandidates;
+    }
+
+    /**
+     * Returns the history of the days every member visited.
+     */
+    public AttendanceHistory getAttendanceHistory() {
+        return attendanceHistory;
+    }
+
+    /**
+     * Adds a new regular member after checking the details.
+     *
+     * @return OK, INVALID if a detail is missing or the email is invalid, CONFLICT if the ID exists
+     */
+    public Result addRegularMember(int id, String name, String location, String phone, String email,
+    String gender, String DOB, String membershipStartDate, String referralSource) {
+        long start = System.nanoTime();
+        try {
+            Result invalid = checkDetails(name, location, phone, email, gender);
+            if (invalid != null) {
+                return invalid;
+            }
+            RegularMember member = new RegularMember(id, name, location, phone, email,
+                                                     gender, DOB, membershipStartDate, referralSource);
+            if (!members.add(member)) {
+                return new Result(Status.CONFLICT, "Member ID already exists!");
+            }
+            return new Result(Status.OK, "Regular Member added successfully!");
+        } finally {
+            ADD_REGULAR_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Adds a new premium member after checking the details.
+     *
+     * @return OK, INVALID if a detail is missing or the email is invalid, CONFLICT if the ID exists
+     */
+    public Result addPremiumMember(int id, String name, String location, String phone, String email,
+    String gender, String DOB, String membershipStartDate, String personalTrainer) {
+        long start = System.nanoTime();
+        try {
+            Result invalid = checkDetails(name, location, phone, email, gender);
+            if (invalid != null) {
+                return invalid;
+            }
+            PremiumMember member = new PremiumMember(id, name, location, phone, email,
+                                                     gender, DOB, membershipStartDate, personalTrainer);
+            if (!members.add(member)) {
+                return new Result(Status.CONFLICT, "Member ID already exists!");
+            }
+            return new Result(Status.OK, "Premium Member added successfully!");
+        } finally {
+            ADD_PREMIUM_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Marks the attendance of a member whose membership is active.
+     *
+     * @param id        ID of the gym member
+     */
+    public Result checkIn(int id) {
+        long start = System.nanoTime();
+        try {
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            synchronized (member) {
+                if (!member.getActiveStatus()) {
+                    return new Result(Status.CONFLICT, "Membership is not active!");
+                }
+                member.markAttendance();
+            }
+            return new Result(Status.OK, "Attendance marked successfully!");
+        } finally {
+            CHECK_IN_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Activates the membership of a member.
+     *
+     * @param id        ID of the gym member
+     */
+    public Result activate(int id) {
+        long start = System.nanoTime();
+        try {
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            member.activateMembership();
+            return new Result(Status.OK, "Membership activated successfully!");
+        } finally {
+            ACTIVATE_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Deactivates the membership of a member.
+     *
+     * @param id        ID of the gym member
+     */
+    public Result deactivate(int id) {
+        long start = System.nanoTime();
+        try {
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            member.deactivateMembership();
+            return new Result(Status.OK, "Membership deactivated successfully!");
+        } finally {
+            DEACTIVATE_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Pays part of the due amount of a premium member.
+     *
+     * @param id        ID of the gym member
+     * @param amount    Amount paid
+     * @return OK with the remaining amount, or CONFLICT if the payment was refused
+     */
+    public Result payDueAmount(int id, double amount) {
+        long start = System.nanoTime();
+        try {
+            if (!isAmountValid(amount)) {
+                return new Result(Status.INVALID, "Please enter a valid amount!");
+            }
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            if (!(member instanceof PremiumMember)) {
+                return new Result(Status.CONFLICT, "Not a Premium Member!");
+            }
+
+            PremiumMember premMember = (PremiumMember) member;
+            synchronized (premMember) {
+                long paidBefore = premMember.getPaidPaisa();
+                String message = premMember.payDueAmount(amount);
+                return new Result(premMember.getPaidPaisa() != paidBefore ? Status.OK : Status.CONFLICT, message);
+            }
+        } finally {
+            PAY_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Upgrades the plan of an active regular member.
+     *
+     * @param id        ID of the gym member
+     * @param plan      New plan (basic, standard, deluxe)
+     * @return OK, or CONFLICT if the member is not eligible or already on the plan
+     */
+    public Result upgradePlan(int id, String plan) {
+        long start = System.nanoTime();
+        try {
+            if (plan == null || plan.isEmpty()) {
+                return new Result(Status.INVALID, "Please select a plan!");
+            }
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            if (!(member instanceof RegularMember)) {
+                return new Result(Status.CONFLICT, "Not a Regular Member!");
+            }
+
+            RegularMember regMember = (RegularMember) member;
+            synchronized (regMember) {
+                if (!regMember.getActiveStatus()) {
+                    return new Result(Status.CONFLICT, "Membership is not active!");
+                }
+                if (RegularMember.planCode(plan) == -1) {
+                    return new Result(Status.INVALID, "Invalid plan selected.");
+                }
+                int planBefore = regMember.getPlanCode();
+                String message = regMember.upgradePlan(plan);
+                return new Result(regMember.getPlanCode() == planBefore ? Status.CONFLICT : Status.OK, message);
+            }
+        } finally {
+            UPGRADE_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Reverts a member. Regular members need a removal reason, premium members do not.
+     *
+     * @param id            ID of the gym member
+     * @param reason        Removal reason of a regular member
+     * @return OK, INVALID if a regular member has no removal reason, or NOT_FOUND
+     */
+    public Result revert(int id, String reason) {
+        long start = System.nanoTime();
+        try {
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            if (member instanceof PremiumMember) {
+                ((PremiumMember) member).revertPremiumMember();
+                return new Result(Status.OK, "Premium Member reverted successfully!");
+            }
+            if (reason == null || reason.isEmpty()) {
+                return new Result(Status.INVALID, "Please enter a removal reason!");
+            }
+            ((RegularMember) member).revertRegularMember(reason);
+            return new Result(Status.OK, "Regular Member reverted successfully!");
+        } finally {
+            REVERT_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Calculates the discount of a premium member, which is only granted after full payment.
+     *
+     * @param id        ID of the gym member
+     * @return OK, CONFLICT if the member is not a premium member, or NOT_FOUND
+     */
+    public Result calculateDiscount(int id) {
+        long start = System.nanoTime();
+        try {
+            GymMember member = members.findById(id);
+            if (member == null) {
+                return notFound();
+            }
+            if (!(member instanceof PremiumMember)) {
+                return new Result(Status.CONFLICT, "Not a Premium Member!");
+            }
+            ((PremiumMember) member).calculateDiscount();
+            return new Result(Status.OK, "Discount calculated!");
+        } finally {
+            DISCOUNT_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Finds members by ID, email, phone number or the start of their name.
+     * Text with an '@' is looked up as an email, text made of digits (and phone punctuation)
+     * as an ID and a phone number, anything else as the start of name words.
+     *
+     * @param query     Text to search for
+     * @param limit     Maximum number of members to return
+     */
+    public List<GymMember> search(String query, int limit) {
+        long start = System.nanoTime();
+        try {
+            String text = query == null ? "" : query.trim();
+            List<GymMember> found = new ArrayList<>();
+            if (text.isEmpty()) {
+                return found;
+            }
+
+            if (text.indexOf('@') >= 0) {
+                found.addAll(members.findByEmail(text));
+            } else if (text.matches("[0-9+()\\- ]+")) {
+                if (text.matches("[0-9]{1,9}")) {
+                    GymMember member = members.findById(Integer.parseInt(text));
+                    if (member != null) {
+                        found.add(member);
+                    }
+                }
+                for (GymMember member : members.findByPhone(text)) {
+                    if (!found.contains(member)) {
+                        found.add(member);
+                    }
+                }
+            } else {
+                found.addAll(members.findByNamePrefix(text, limit));
+            }
+            return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+        } finally {
+            SEARCH_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Checks if the email is valid:
+     * - No spaces
+     * - Exactly one '@', not at start or end
+     * - At least one '.' after '@', not at end
+     * @return true if valid, false otherwise
+     */
+    public static boolean isEmailValid(String email) {
+        if (email == null || email.isEmpty()) {
+            return false;
+        }
+
+        if (email.contains(" ")) {
+            return false;
+        }
+        int atIndex = email.indexOf('@');
+        int lastAtIndex = email.lastIndexOf('@');
+
+        if (atIndex <= 0 || atIndex != lastAtIndex || atIndex == email.length() - 1) {
+            return false;
+        }
+
+        int dotAfterAt = email.indexOf('.', atIndex);
+        if (dotAfterAt == -1 || dotAfterAt == email.length() - 1) {
+            return false;
+        }
+
+        return true;
+    }
+
+    // Returns an INVALID result for missing details or an invalid email, otherwise null.
+    // Also used by MemberImport, so imported rows are rejected with the same messages.
+    static Result checkDetails(String name, String location, String phone, String email, String gender) {
+        if (isEmpty(name) || isEmpty(location) || isEmpty(phone) || isEmpty(email) || isEmpty(gender)) {
+            return new Result(Status.INVALID, "Please fill all the required fields!");
+        }
+        if (!isEmailValid(email)) {
+            return new Result(Status.INVALID, "Please enter a valid email address!");
+        }
+        return null;
+    }
+
+    // True for a positive amount of at least one paisa
+    private static boolean isAmountValid(double amount) {
+        try {
+            return amount > 0 && Money.toPaisa(amount) > 0;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static Result notFound() {
+        return new Result(Status.NOT_FOUND, "Member not found!");
+    }
+
+    /**
+     * Outcome of a member operation and the message to show for it.
+     */
+    public static class Result {
+        private final Status status;
+        private final String message;
+
+        Result(Status status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        // Accessor (Getter) methods to retrieve the outcome
+        public Status getStatus() {
+            return status;
+        }
+        public String getMessage() {
+            return message;
+        }
+        /**
+         * Returns true if the operation was applied.
+         */
+        public boolean isOk() {
+            return status == Status.OK;
+        }
+    }
+}
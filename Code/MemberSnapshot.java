@@ -0,0 +1,606 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Binary snapshot format for saving and restoring gym members.
+ *
+ * A snapshot starts with a header (magic number, format version and member count)
+ * followed by one record per member. Every record begins with fixed-width numeric
+ * columns (type, ID, attendance, loyalty points, status flags and amounts) and ends
+ * with the member's text fields as length-prefixed UTF-8 strings.
+ *
+ * Since version 2 the attributes that repeat across members (location, gender, start date,
+ * plan, referral source and trainer) are dictionary encoded: the first time a value occurs
+ * in the file it is written in full and gets the next code, and every later occurrence is
+ * written as that code in place of the length. Readers build the same dictionary as they go,
+ * so the file needs no separate dictionary section and is still read in one pass.
+ * Version 1 files have no codes and are still read. Journal records use encode() without
+ * a dictionary, so every record can be decoded on its own.
+ *
+ * Snapshots are loaded through a memory-mapped FileChannel, so restoring a large
+ * roster is a sequential scan over the file without any line parsing. loadLazy() skips
+ * over name, phone and email and leaves them in the file until a member first uses them.
+ * Saving copies the fields of such members from the old file without keeping them.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberSnapshot {
+    /**
+     * Default snapshot file name
+     */
+    public static final String FILE_NAME = "MemberDetails.dat";
+
+    // Header values
+    private static final int MAGIC = 0x47594D53; // "GYMS"
+    private static final short VERSION = 2;
+    private static final short VERSION_WITHOUT_CODES = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 4;
+
+    // Record types
+    private static final byte TYPE_REGULAR = 1;
+    private static final byte TYPE_PREMIUM = 2;
+
+    // Status flag bits
+    private static final byte FLAG_ACTIVE = 1;
+    private static final byte FLAG_ELIGIBLE_OR_FULL_PAYMENT = 2;
+
+    // type + id + attendance + loyalty points + flags + two amounts
+    private static final int FIXED_RECORD_SIZE = 1 + 4 + 4 + 8 + 1 + 8 + 8;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final long MAP_WINDOW_SIZE = 64L << 20;
+    // Members between two progress reports
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    private static final OperationTimer SAVE_TIMER = OperationMetrics.timer("saveSnapshot");
+    private static final OperationTimer LOAD_TIMER = OperationMetrics.timer("loadSnapshot");
+
+    private MemberSnapshot() {
+    }
+
+    /**
+     * Writes all members to a snapshot file, replacing any existing file.
+     *
+     * @param file          Snapshot file to write
+     * @param members       Members to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(File file, Collection<GymMember> members) throws IOException {
+        save(file, members, written -> true);
+    }
+
+    /**
+     * Writes all members to a snapshot file, replacing any existing file.
+     * The snapshot is written to a temporary file first and then moved over the old one,
+     * so a cancelled or failed save leaves the old snapshot untouched.
+     *
+     * @param file          Snapshot file to write
+     * @param members       Members to save
+     * @param progress      Called with the number of members written so far, returns false to cancel
+     * @return true if the snapshot was saved, false if it was cancelled
+     * @throws IOException if the file cannot be written
+     */
+    public static boolean save(File file, Collection<GymMember> members, IntPredicate progress)
+            throws IOException {
+        long start = System.nanoTime();
+        File directory = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        boolean saved = false;
+        try {
+            if (!write(temp, members, progress)) {
+                return false;
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            saved = true;
+            syncDirectory(directory);
+            return true;
+        } finally {
+            if (!saved) {
+                temp.delete();
+            }
+            SAVE_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so a file just moved into it is still there
+     * after a power failure. Does nothing where directories cannot be opened, as on Windows.
+     *
+     * @param directory     Directory to sync
+     */
+    static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The move itself succeeded, only its durability is left to the file system
+        }
+    }
+
+    private static boolean write(File file, Collection<GymMember> members, IntPredicate progress)
+            throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.putInt(members.size());
+
+            StringDictionary dictionary = new StringDictionary();
+            int written = 0;
+            for (GymMember member : members) {
+                if (written % PROGRESS_INTERVAL == 0 && !progress.test(written)) {
+                    return false;
+                }
+                written++;
+                // The member's lock keeps its details consistent while other threads change members
+                synchronized (member) {
+                    String[] contact = member.getContactFields();
+                    int maxSize = maxEncodedSize(member, contact);
+                    if (buffer.remaining() < maxSize) {
+                        flush(channel, buffer);
+                    }
+                    if (buffer.remaining() < maxSize) {
+                        // A single record larger than the whole write buffer
+                        ByteBuffer large = ByteBuffer.allocate(maxSize);
+                        encode(large, member, contact, dictionary);
+                        flush(channel, large);
+                    } else {
+                        encode(buffer, member, contact, dictionary);
+                    }
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+            return true;
+        }
+    }
+
+    /**
+     * Reads all members from a snapshot file.
+     *
+     * @param file          Snapshot file to read
+     * @return Members in the order they were saved
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<GymMember> load(File file) throws IOException {
+        return load(file, read -> true);
+    }
+
+    /**
+     * Reads all members from a snapshot file.
+     *
+     * @param file          Snapshot file to read
+     * @param progress      Called with the number of members read so far, returns false to cancel
+     * @return Members in the order they were saved, or null if cancelled
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<GymMember> load(File file, IntPredicate progress) throws IOException {
+        return read(file, progress, null);
+    }
+
+    /**
+     * Reads all members from a snapshot file, leaving their name, phone and email in the file
+     * until they are first used. The file is kept open for that, and a later snapshot may
+     * still be moved over it.
+     *
+     * @param file          Snapshot file to read
+     * @return Members in the order they were saved
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<GymMember> loadLazy(File file) throws IOException {
+        ColdFieldStore coldStore = new ColdFieldStore(file);
+        boolean loaded = false;
+        try {
+            List<GymMember> members = read(file, read -> true, coldStore);
+            loaded = true;
+            return members;
+        } finally {
+            if (!loaded) {
+                coldStore.close();
+            }
+        }
+    }
+
+    private static List<GymMember> read(File file, IntPredicate progress, ColdFieldStore coldStore)
+            throws IOException {
+        long start = System.nanoTime();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a member snapshot file: " + file.getName());
+            }
+
+            long windowStart = 0;
+            MappedByteBuffer window = map(channel, windowStart, fileSize);
+            if (window.getInt() != MAGIC) {
+                throw new IOException("Not a member snapshot file: " + file.getName());
+            }
+            short version = window.getShort();
+            if (version != VERSION && version != VERSION_WITHOUT_CODES) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            int count = window.getInt();
+
+            List<GymMember> members = new ArrayList<>(count);
+            byte[] scratch = new byte[256];
+            List<String> dictionary = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (i % PROGRESS_INTERVAL == 0 && !progress.test(i)) {
+                    return null;
+                }
+                int recordStart = window.position();
+                int dictionarySize = dictionary.size();
+                try {
+                    members.add(decode(window, scratch, dictionary, coldStore, windowStart));
+                } catch (BufferUnderflowException e) {
+                    // Values of the incomplete record are read again with it
+                    dictionary.subList(dictionarySize, dictionary.size()).clear();
+                    // The record crosses the end of the mapped window, so map again from its start
+                    long recordOffset = windowStart + recordStart;
+                    if (windowStart + window.limit() >= fileSize && windowStart == recordOffset) {
+                        throw new IOException("Snapshot file is truncated: " + file.getName());
+                    }
+                    windowStart = recordOffset;
+                    window = map(channel, windowStart, fileSize);
+                    try {
+                        members.add(decode(window, scratch, dictionary, coldStore, windowStart));
+                    } catch (BufferUnderflowException truncated) {
+                        throw new IOException("Snapshot file is truncated: " + file.getName());
+                    }
+                }
+            }
+            return members;
+        } finally {
+            LOAD_TIMER.record(start);
+        }
+    }
+
+    /**
+     * Returns an upper bound of the bytes needed to encode the member.
+     *
+     * @param member        Member to encode
+     * @param contact       Name, phone and email of the member, from getContactFields()
+     */
+    static int maxEncodedSize(GymMember member, String[] contact) {
+        int size = FIXED_RECORD_SIZE;
+        size += maxStringSize(contact[0]);
+        size += maxStringSize(member.getLocation());
+        size += maxStringSize(contact[1]);
+        size += maxStringSize(contact[2]);
+        size += maxStringSize(member.getGender());
+        size += maxStringSize(member.getDOB());
+        size += maxStringSize(member.getMembershipStartDate());
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            size += maxStringSize(regMember.getPlan());
+            size += maxStringSize(regMember.getReferralSource());
+            size += maxStringSize(regMember.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            size += maxStringSize(((PremiumMember) member).getPersonalTrainer());
+        }
+        return size;
+    }
+
+    /**
+     * Encodes one member record into the buffer with every string written in full.
+     * The buffer must have at least maxEncodedSize(member, contact) bytes remaining.
+     * Taking the contact fields from getContactFields() leaves a lazily loaded member's
+     * name, phone and email in the snapshot.
+     *
+     * @param buffer        Buffer to write the record into
+     * @param member        Member to encode
+     * @param contact       Name, phone and email of the member, from getContactFields()
+     */
+    static void encode(ByteBuffer buffer, GymMember member, String[] contact) {
+        encode(buffer, member, contact, null);
+    }
+
+    // Encodes a record with the member's name, phone and email as given,
+    // and with repeating values as codes of the dictionary if there is one
+    private static void encode(ByteBuffer buffer, GymMember member, String[] contact, StringDictionary dictionary) {
+        byte flags = member.getActiveStatus() ? FLAG_ACTIVE : 0;
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            if (regMember.getIsEligibleForUpgrade()) {
+                flags |= FLAG_ELIGIBLE_OR_FULL_PAYMENT;
+            }
+            buffer.put(TYPE_REGULAR);
+            putNumbers(buffer, member, flags, regMember.getPrice(), 0);
+            putCommonStrings(buffer, member, contact, dictionary);
+            putCodedString(buffer, regMember.getPlan(), dictionary);
+            putCodedString(buffer, regMember.getReferralSource(), dictionary);
+            putString(buffer, regMember.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            if (premMember.getIsFullPayment()) {
+                flags |= FLAG_ELIGIBLE_OR_FULL_PAYMENT;
+            }
+            buffer.put(TYPE_PREMIUM);
+            putNumbers(buffer, member, flags, premMember.getPaidAmount(), premMember.getDiscountAmount());
+            putCommonStrings(buffer, member, contact, dictionary);
+            putCodedString(buffer, premMember.getPersonalTrainer(), dictionary);
+        } else {
+            throw new IllegalArgumentException("Unknown member type: " + member.getClass().getName());
+        }
+    }
+
+    /**
+     * Returns an upper bound of the bytes needed to encode the member's state.
+     *
+     * @param member        Member to encode
+     */
+    static int maxStateSize(GymMember member) {
+        int size = FIXED_RECORD_SIZE;
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            size += maxStringSize(regMember.getPlan());
+            size += maxStringSize(regMember.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            size += maxStringSize(((PremiumMember) member).getPersonalTrainer());
+        }
+        return size;
+    }
+
+    /**
+     * Encodes the part of a member that changes after it is added: the numbers and flags of
+     * a full record, followed by the plan and removal reason of a regular member or the trainer
+     * of a premium member. Name, phone, email and the other details are left out, so a lazily
+     * loaded member is encoded without reading them from the snapshot.
+     * The buffer must have at least maxStateSize(member) bytes remaining.
+     *
+     * @param buffer        Buffer to write the state into
+     * @param member        Member to encode
+     */
+    static void encodeState(ByteBuffer buffer, GymMember member) {
+        byte flags = member.getActiveStatus() ? FLAG_ACTIVE : 0;
+        if (member instanceof RegularMember) {
+            RegularMember regMember = (RegularMember) member;
+            if (regMember.getIsEligibleForUpgrade()) {
+                flags |= FLAG_ELIGIBLE_OR_FULL_PAYMENT;
+            }
+            buffer.put(TYPE_REGULAR);
+            putNumbers(buffer, member, flags, regMember.getPrice(), 0);
+            putString(buffer, regMember.getPlan());
+            putString(buffer, regMember.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember premMember = (PremiumMember) member;
+            if (premMember.getIsFullPayment()) {
+                flags |= FLAG_ELIGIBLE_OR_FULL_PAYMENT;
+            }
+            buffer.put(TYPE_PREMIUM);
+            putNumbers(buffer, member, flags, premMember.getPaidAmount(), premMember.getDiscountAmount());
+            putString(buffer, premMember.getPersonalTrainer());
+        } else {
+            throw new IllegalArgumentException("Unknown member type: " + member.getClass().getName());
+        }
+    }
+
+    /**
+     * Decodes a state written by encodeState() and puts it back into the member with the same ID.
+     *
+     * @param buffer        Buffer positioned at the start of a state
+     * @param scratch       Reusable array for decoding strings
+     * @param members       Repository holding the member
+     * @return true if the state was applied, false if no member of that type has the ID
+     * @throws BufferUnderflowException if the state is not complete in the buffer
+     */
+    static boolean applyState(ByteBuffer buffer, byte[] scratch, MemberRepository members) {
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        int attendance = buffer.getInt();
+        double loyaltyPoints = buffer.getDouble();
+        byte flags = buffer.get();
+        double firstAmount = buffer.getDouble();
+        double secondAmount = buffer.getDouble();
+        boolean secondFlag = (flags & FLAG_ELIGIBLE_OR_FULL_PAYMENT) != 0;
+
+        GymMember member = members.findById(id);
+        if (type == TYPE_REGULAR) {
+            String plan = getString(buffer, scratch);
+            String removalReason = getString(buffer, scratch);
+            if (!(member instanceof RegularMember)) {
+                return false;
+            }
+            ((RegularMember) member).restorePlan(plan, firstAmount, secondFlag, removalReason);
+        } else if (type == TYPE_PREMIUM) {
+            String trainer = getString(buffer, scratch);
+            if (!(member instanceof PremiumMember)) {
+                return false;
+            }
+            PremiumMember premMember = (PremiumMember) member;
+            premMember.restorePayment(firstAmount, secondFlag, secondAmount);
+            premMember.restoreTrainer(trainer);
+        } else {
+            throw new IllegalStateException("Unknown member record type: " + type);
+        }
+        member.restoreState(attendance, loyaltyPoints, (flags & FLAG_ACTIVE) != 0);
+        return true;
+    }
+
+    /**
+     * Decodes one member record without dictionary codes from the buffer.
+     *
+     * @param buffer        Buffer positioned at the start of a record
+     * @param scratch       Reusable array for decoding strings
+     * @return Restored member
+     * @throws BufferUnderflowException if the record is not complete in the buffer
+     */
+    static GymMember decode(ByteBuffer buffer, byte[] scratch) {
+        return decode(buffer, scratch, null, null, 0);
+    }
+
+    // Decodes a record whose repeating values may be codes of the dictionary.
+    // With a cold store, name, phone and email are skipped and left in the file,
+    // whose offset at the start of the buffer is given.
+    private static GymMember decode(ByteBuffer buffer, byte[] scratch, List<String> dictionary,
+                                    ColdFieldStore coldStore, long bufferOffset) {
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        int attendance = buffer.getInt();
+        double loyaltyPoints = buffer.getDouble();
+        byte flags = buffer.get();
+        double firstAmount = buffer.getDouble();
+        double secondAmount = buffer.getDouble();
+
+        long nameOffset = bufferOffset + buffer.position();
+        String name = coldStore == null ? getString(buffer, scratch) : skipString(buffer);
+        String location = getCodedString(buffer, scratch, dictionary);
+        String phone = coldStore == null ? getString(buffer, scratch) : skipString(buffer);
+        String email = coldStore == null ? getString(buffer, scratch) : skipString(buffer);
+        String gender = getCodedString(buffer, scratch, dictionary);
+        String dob = getString(buffer, scratch);
+        String startDate = getCodedString(buffer, scratch, dictionary);
+
+        boolean active = (flags & FLAG_ACTIVE) != 0;
+        boolean secondFlag = (flags & FLAG_ELIGIBLE_OR_FULL_PAYMENT) != 0;
+        GymMember member;
+        if (type == TYPE_REGULAR) {
+            String plan = getCodedString(buffer, scratch, dictionary);
+            String referral = getCodedString(buffer, scratch, dictionary);
+            String removalReason = getString(buffer, scratch);
+            RegularMember regMember = new RegularMember(id, name, location, phone, email,
+                                                        gender, dob, startDate, referral);
+            regMember.restorePlan(plan, firstAmount, secondFlag, removalReason);
+            member = regMember;
+        } else if (type == TYPE_PREMIUM) {
+            String trainer = getCodedString(buffer, scratch, dictionary);
+            PremiumMember premMember = new PremiumMember(id, name, location, phone, email,
+                                                         gender, dob, startDate, trainer);
+            premMember.restorePayment(firstAmount, secondFlag, secondAmount);
+            member = premMember;
+        } else {
+            throw new IllegalStateException("Unknown member record type: " + type);
+        }
+        member.restoreState(attendance, loyaltyPoints, active);
+        if (coldStore != null) {
+            member.setColdFields(coldStore, nameOffset);
+        }
+        return member;
+    }
+
+    private static void putNumbers(ByteBuffer buffer, GymMember member, byte flags,
+                                   double firstAmount, double secondAmount) {
+        buffer.putInt(member.getId());
+        buffer.putInt(member.getAttendance());
+        buffer.putDouble(member.getLoyaltyPoints());
+        buffer.put(flags);
+        buffer.putDouble(firstAmount);
+        buffer.putDouble(secondAmount);
+    }
+
+    private static void putCommonStrings(ByteBuffer buffer, GymMember member, String[] contact,
+                                         StringDictionary dictionary) {
+        putString(buffer, contact[0]);
+        putCodedString(buffer, member.getLocation(), dictionary);
+        putString(buffer, contact[1]);
+        putString(buffer, contact[2]);
+        putCodedString(buffer, member.getGender(), dictionary);
+        putString(buffer, member.getDOB());
+        putCodedString(buffer, member.getMembershipStartDate(), dictionary);
+    }
+
+    // A value already in the dictionary is stored as -2 - code in place of the length,
+    // a new value is stored in full and added to the dictionary
+    private static void putCodedString(ByteBuffer buffer, String value, StringDictionary dictionary) {
+        int code = dictionary == null ? StringDictionary.NULL_CODE : dictionary.find(value);
+        if (code != StringDictionary.NULL_CODE) {
+            buffer.putInt(-2 - code);
+            return;
+        }
+        putString(buffer, value);
+        if (dictionary != null) {
+            dictionary.encode(value);
+        }
+    }
+
+    private static String getCodedString(ByteBuffer buffer, byte[] scratch, List<String> dictionary) {
+        int length = buffer.getInt();
+        if (length < -1) {
+            int code = -2 - length;
+            if (dictionary == null || code >= dictionary.size()) {
+                throw new IllegalStateException("Unknown dictionary code in member record: " + code);
+            }
+            return dictionary.get(code);
+        }
+        buffer.position(buffer.position() - 4);
+        String value = getString(buffer, scratch);
+        if (dictionary != null && value != null) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    // Strings are stored as a byte length followed by UTF-8 bytes, -1 marks null
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Skips a string left in the file, returns null in its place
+    private static String skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+        return null;
+    }
+
+    private static int maxStringSize(String value) {
+        return 4 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long fileSize) throws IOException {
+        long length = Math.min(MAP_WINDOW_SIZE, fileSize - start);
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+}
@@ -0,0 +1,295 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model that shows gym members straight from the member repository.
+ *
+ * Cell values are read from the members only when the table asks for them, so a JTable
+ * using this model only touches the rows that are visible. Sorting and filtering build
+ * an array of row positions on a background thread and swap it in when done.
+ *
+ * @author Sadikshya Karki
+ */
+public class MemberTableModel extends AbstractTableModel implements MemberListener {
+    private static final long serialVersionUID = 1L;
+
+    private static final OperationTimer ROWS_TIMER = OperationMetrics.timer("sortFilterMembers");
+
+    private static final String[] COLUMN_NAMES = {
+        "ID", "Type", "Name", "Location", "Phone", "Email", "Gender", "DOB", "Start Date",
+        "Attendance", "Loyalty Points", "Active", "Plan", "Price", "Trainer", "Paid Amount", "Payment Status"
+    };
+
+    private static final Class<?>[] COLUMN_CLASSES = {
+        Integer.class, String.class, String.class, String.class, String.class, String.class, String.class,
+        String.class, String.class, Integer.class, Double.class, Boolean.class, String.class, Double.class,
+        String.class, Double.class, String.class
+    };
+
+    private final MemberRepository members;
+
+    // Positions of the shown members in the repository, null shows every member in order
+    private int[] rows;
+
+    // Current sort and filter
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private String filter = "";
+
+    // Newest sort or filter request, older results are dropped
+    private int generation;
+    private boolean refreshPending;
+    private boolean memberAdded;
+
+    /**
+     * Constructor to create a table model over the member repository.
+     *
+     * @param members       Repository holding the members to show
+     */
+    public MemberTableModel(MemberRepository members) {
+        this.members = members;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows == null ? members.size() : rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return valueOf(getMemberAt(row), column);
+    }
+
+    /**
+     * Returns the member shown in the given row.
+     *
+     * @param row       Row of the table model
+     */
+    public GymMember getMemberAt(int row) {
+        return members.get(rows == null ? row : rows[row]);
+    }
+
+    /**
+     * Returns the column the rows are sorted by, or -1 if they are in insertion order.
+     */
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    /**
+     * Returns true if the rows are sorted in ascending order.
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Sorts the rows by a column on a background thread.
+     * Sorting by the same column again reverses the order.
+     *
+     * @param column        Column to sort by
+     */
+    public void sortBy(int column) {
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        rebuildRows();
+    }
+
+    /**
+     * Shows only members whose ID, name, location, phone or email contains the text,
+     * filtering on a background thread.
+     *
+     * @param text      Text to search for, empty shows every member
+     */
+    public void setFilter(String text) {
+        filter = text.trim().toLowerCase(Locale.ROOT);
+        rebuildRows();
+    }
+
+    /**
+     * Refreshes the table after a member change, at most once per event dispatch cycle.
+     * When members were added while the rows are sorted or filtered, the rows are rebuilt
+     * so the new members show up in their place.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        synchronized (this) {
+            if (change == MemberChange.ADDED) {
+                memberAdded = true;
+            }
+            if (refreshPending) {
+                return;
+            }
+            refreshPending = true;
+        }
+        SwingUtilities.invokeLater(() -> {
+            boolean added;
+            synchronized (MemberTableModel.this) {
+                refreshPending = false;
+                added = memberAdded;
+                memberAdded = false;
+            }
+            if (added && rows != null) {
+                rebuildRows();
+            } else {
+                fireTableDataChanged();
+            }
+        });
+    }
+
+    // Builds the row positions for the current sort and filter off the event dispatch thread
+    private void rebuildRows() {
+        final int requested = ++generation;
+        final List<GymMember> roster = members.getAll();
+        final int column = sortColumn;
+        final boolean order = ascending;
+        final String text = filter;
+
+        new SwingWorker<int[], Void>() {
+            protected int[] doInBackground() {
+                long start = System.nanoTime();
+                try {
+                    return buildRows(roster, column, order, text);
+                } finally {
+                    ROWS_TIMER.record(start);
+                }
+            }
+
+            protected void done() {
+                if (requested != generation) {
+                    return;
+                }
+                try {
+                    rows = get();
+                    fireTableDataChanged();
+                } catch (Exception e) {
+                    // Keep showing the previous rows
+                }
+            }
+        }.execute();
+    }
+
+    private static int[] buildRows(List<GymMember> roster, int column, boolean ascending, String filter) {
+        if (column < 0 && filter.isEmpty()) {
+            return null;
+        }
+
+        int[] matches = new int[roster.size()];
+        int count = 0;
+        for (int i = 0; i < roster.size(); i++) {
+            if (filter.isEmpty() || matches(roster.get(i), filter)) {
+                matches[count++] = i;
+            }
+        }
+        if (column < 0) {
+            return Arrays.copyOf(matches, count);
+        }
+
+        // Sort keys are computed once per row instead of once per comparison
+        Object[] keys = new Object[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = sortKey(roster.get(matches[i]), column);
+            order[i] = i;
+        }
+        Comparator<Integer> comparator = (first, second) -> compareKeys(keys[first], keys[second]);
+        Arrays.sort(order, ascending ? comparator : comparator.reversed());
+
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = matches[order[i]];
+        }
+        return sorted;
+    }
+
+    // Name, phone and email come from getContactFields() so filtering a lazily loaded
+    // roster does not keep every member's contact fields in memory
+    private static boolean matches(GymMember member, String filter) {
+        if (String.valueOf(member.getId()).equals(filter) || contains(member.getLocation(), filter)) {
+            return true;
+        }
+        String[] contact = member.getContactFields();
+        return contains(contact[0], filter) || contains(contact[1], filter) || contains(contact[2], filter);
+    }
+
+    private static boolean contains(String value, String filter) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(filter);
+    }
+
+    private static Object sortKey(GymMember member, int column) {
+        Object value;
+        switch (column) {
+            // Like matches(), without loading the contact fields into the member
+            case 2: value = member.getContactFields()[0]; break;
+            case 4: value = member.getContactFields()[1]; break;
+            case 5: value = member.getContactFields()[2]; break;
+            // Dates sort by day, members without a date first
+            case 7: value = member.getDobEpochDay(); break;
+            case 8: value = member.getMembershipStartDay(); break;
+            default: value = valueOf(member, column); break;
+        }
+        if (value instanceof String) {
+            return ((String) value).toLowerCase(Locale.ROOT);
+        }
+        return value;
+    }
+
+    // Nulls sort first, other keys of a column all share one Comparable type
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object first, Object second) {
+        if (first == null || second == null) {
+            return first == null ? (second == null ? 0 : -1) : 1;
+        }
+        return ((Comparable<Object>) first).compareTo(second);
+    }
+
+    private static Object valueOf(GymMember member, int column) {
+        RegularMember regMember = member instanceof RegularMember ? (RegularMember) member : null;
+        PremiumMember premMember = member instanceof PremiumMember ? (PremiumMember) member : null;
+        switch (column) {
+            case 0: return member.getId();
+            case 1: return premMember != null ? "Premium" : "Regular";
+            case 2: return member.getName();
+            case 3: return member.getLocation();
+            case 4: return member.getPhone();
+            case 5: return member.getEmail();
+            case 6: return member.getGender();
+            case 7: return member.getDOB();
+            case 8: return member.getMembershipStartDate();
+            case 9: return member.getAttendance();
+            case 10: return member.getLoyaltyPoints();
+            case 11: return member.getActiveStatus();
+            case 12: return regMember != null ? regMember.getPlan() : "premium";
+            case 13: return regMember != null ? regMember.getPrice() : premMember.getPremiumCharge();
+            case 14: return premMember != null ? premMember.getPersonalTrainer() : "";
+            case 15: return premMember != null ? premMember.getPaidAmount() : null;
+            case 16: return premMember != null ? (premMember.getIsFullPayment() ? "Complete" : "Incomplete") : "";
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between rupee amounts and exact whole paisa (1/100 rupee).
+ *
+ * Money is stored and added up as a long number of paisa, so totals are exact
+ * however many payments are added, and amounts can be compared with ==.
+ * Rupee amounts are only used at the edges, for input and display.
+ *
+ * @author Sadikshya Karki
+ */
+public final class Money {
+    /**
+     * Paisa in one rupee
+     */
+    public static final long PAISA_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Converts a rupee amount to paisa, rounding half up to the nearest paisa.
+     *
+     * @param amount        Amount in rupees
+     * @throws ArithmeticException if the amount is not a number or too large
+     */
+    public static long toPaisa(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new ArithmeticException("Not an amount: " + amount);
+        }
+        // Whole rupees (plan prices, charges) need no rounding
+        if (amount == Math.rint(amount) && Math.abs(amount) < 1e15) {
+            return (long) amount * PAISA_PER_RUPEE;
+        }
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Converts paisa to a rupee amount for display.
+     *
+     * @param paisa         Amount in paisa
+     */
+    public static double toAmount(long paisa) {
+        return paisa / (double) PAISA_PER_RUPEE;
+    }
+
+    /**
+     * Formats paisa as a rupee amount with two decimals, e.g. 12345 as "123.45".
+     *
+     * @param paisa         Amount in paisa
+     */
+    public static String format(long paisa) {
+        return BigDecimal.valueOf(paisa, 2).toPlainString();
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the operation timers of the application.
+ *
+ * Every member operation and every persistence call records its latency in a timer named after
+ * it. Each timer is registered as an MBean named "GymMembership:type=Operation,name=<operation>",
+ * so a running GUI or HTTP server can be watched with JConsole, and the whole table can be
+ * printed with report() or written to a file with dump().
+ *
+ * @author Sadikshya Karki
+ */
+public final class OperationMetrics {
+    /**
+     * Default file name the metrics are dumped to
+     */
+    public static final String DUMP_FILE_NAME = "OperationMetrics.txt";
+
+    private static final String DOMAIN = "GymMembership";
+    private static final ConcurrentHashMap<String, OperationTimer> timers = new ConcurrentHashMap<>();
+
+    private OperationMetrics() {
+    }
+
+    /**
+     * Returns the timer of an operation, creating and registering it on first use.
+     *
+     * @param name      Name of the operation
+     */
+    public static OperationTimer timer(String name) {
+        return timers.computeIfAbsent(name, OperationMetrics::register);
+    }
+
+    /**
+     * Returns all timers, sorted by operation name.
+     */
+    public static List<OperationTimer> getTimers() {
+        List<OperationTimer> sorted = new ArrayList<>(timers.values());
+        sorted.sort(Comparator.comparing(OperationTimer::getName));
+        return sorted;
+    }
+
+    /**
+     * Removes the recorded latencies of all timers.
+     */
+    public static void resetAll() {
+        for (OperationTimer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Returns a table of the timers that ran at least once, with latencies in microseconds.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %10s %10s %10s %10s %10s %12s%n",
+                                    "Operation", "Count", "Mean", "p50", "p99", "p99.9", "Max"));
+        for (OperationTimer timer : getTimers()) {
+            if (timer.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format("%-24s %10d %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                                        timer.getName(), timer.getCount(), timer.getMeanMicros(),
+                                        timer.getP50Micros(), timer.getP99Micros(),
+                                        timer.getP999Micros(), timer.getMaxMicros()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes the report to a file, replacing any existing file.
+     *
+     * @param file      File to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.print(report());
+        }
+    }
+
+    private static OperationTimer register(String name) {
+        OperationTimer timer = new OperationTimer(name);
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Operation,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(timer, objectName);
+        } catch (JMException e) {
+            // The timer still records and shows up in the report without JMX
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Count and latency histogram of one operation, such as adding a member or saving a snapshot.
+ *
+ * Timers are created by OperationMetrics and kept in a static field of the class running the
+ * operation. The operation records its start time and passes it to record() when it finishes:
+ *
+ *     long start = System.nanoTime();
+ *     try {
+ *         ...
+ *     } finally {
+ *         TIMER.record(start);
+ *     }
+ *
+ * @author Sadikshya Karki
+ */
+public class OperationTimer implements OperationTimerMBean {
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final String name;
+    private final LatencyHistogram histogram;
+
+    /**
+     * Constructor to create a timer with no recorded latencies.
+     *
+     * @param name      Name of the operation
+     */
+    public OperationTimer(String name) {
+        this.name = name;
+        this.histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Records one run of the operation that started at the given time.
+     *
+     * @param startNanos        Value of System.nanoTime() when the operation started
+     */
+    public void record(long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    // Accessor (Getter) methods
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.getMeanNanos() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return getPercentileMicros(50);
+    }
+
+    @Override
+    public double getP90Micros() {
+        return getPercentileMicros(90);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return getPercentileMicros(99);
+    }
+
+    @Override
+    public double getP999Micros() {
+        return getPercentileMicros(99.9);
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return histogram.getMaxNanos() / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Returns the latency in microseconds that the given percentage of runs did not exceed.
+     *
+     * @param percentile        Percentage from 0 to 100
+     */
+    public double getPercentileMicros(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Management interface of an OperationTimer, as shown in JConsole or VisualVM
+ * under "GymMembership:type=Operation".
+ *
+ * @author Sadikshya Karki
+ */
+public interface OperationTimerMBean {
+    /**
+     * Returns the name of the operation.
+     */
+    String getName();
+
+    /**
+     * Returns the number of times the operation ran.
+     */
+    long getCount();
+
+    /**
+     * Returns the mean latency in microseconds.
+     */
+    double getMeanMicros();
+
+    /**
+     * Returns the median latency in microseconds.
+     */
+    double getP50Micros();
+
+    /**
+     * Returns the 90th percentile latency in microseconds.
+     */
+    double getP90Micros();
+
+    /**
+     * Returns the 99th percentile latency in microseconds.
+     */
+    double getP99Micros();
+
+    /**
+     * Returns the 99.9th percentile latency in microseconds.
+     */
+    double getP999Micros();
+
+    /**
+     * Returns the largest latency in microseconds.
+     */
+    double getMaxMicros();
+
+    /**
+     * Removes all recorded latencies, e.g. after a warm-up.
+     */
+    void reset();
+}
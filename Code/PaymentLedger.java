@@ -0,0 +1,569 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Ledger of every premium membership payment, discount and reversal.
+ *
+ * The ledger listens to member changes. When a premium member's paid or discount amount
+ * changes, the difference is recorded as an immutable entry in exact paisa, and the member's
+ * account and the gym-wide totals (collected, outstanding and discounts granted) are updated
+ * with it. Reports therefore read a few running totals instead of adding up every member.
+ *
+ * Members that already have payments when the ledger starts, or that are added with
+ * payments (for example from a snapshot), get an OPENING entry for them.
+ *
+ * A ledger opened on a file ("PaymentLedger.log") appends every entry to it and never
+ * rewrites it, so the file holds the whole history and adds up to the totals. On start the
+ * file is read back to rebuild the accounts, the totals and the entry count; a member whose
+ * amounts differ from its account, for example because the last entries were not written
+ * before a crash, gets PAYMENT, DISCOUNT or REVERSAL entries for the difference, and only
+ * members without an account get OPENING entries. Entries are collected in memory while the
+ * member's lock is held and written by flush(), which a SnapshotCompactor given the ledger
+ * calls at every check, so no disk I/O happens during a change.
+ *
+ * To keep the memory bounded, only the newest MAX_RECENT_ENTRIES entries of the gym and the
+ * newest MAX_MEMBER_ENTRIES entries of each member are kept in memory; getHistory() reads
+ * all entries of a member back from the file. A ledger without a file keeps only those.
+ *
+ * @author Sadikshya Karki
+ */
+public class PaymentLedger implements MemberListener {
+    /**
+     * Kind of a ledger entry
+     */
+    public enum Kind {
+        /** Amounts a member already had when the ledger started tracking it */
+        OPENING,
+        /** A payment towards the premium charge */
+        PAYMENT,
+        /** A discount granted after full payment */
+        DISCOUNT,
+        /** Payments or discounts cancelled by reverting the member (negative amount) */
+        REVERSAL
+    }
+
+    /**
+     * Number of the newest entries of all members that are kept
+     */
+    public static final int MAX_RECENT_ENTRIES = 10000;
+    /**
+     * Number of the newest entries of one member that are kept
+     */
+    public static final int MAX_MEMBER_ENTRIES = 50;
+
+    /**
+     * Default ledger file name
+     */
+    public static final String FILE_NAME = "PaymentLedger.log";
+
+    private static final int MAGIC = 0x47594D4C; // "GYML"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2;
+    // sequence + member ID + kind + amount + time + checksum
+    private static final int ENTRY_SIZE = 8 + 4 + 1 + 8 + 8 + 4;
+    // Bit set in the kind of an entry whose amount is a discount rather than a payment
+    private static final byte DISCOUNT_AMOUNT = (byte) 0x80;
+
+    private static final OperationTimer FLUSH_TIMER = OperationMetrics.timer("ledgerFlush");
+    private static final OperationTimer LOAD_TIMER = OperationMetrics.timer("loadPaymentLedger");
+
+    private final ArrayDeque<Entry> entries;
+    private final IntHashMap<Account> accounts;
+    private long entryCount;
+
+    // Gym-wide running totals in paisa
+    private long collectedPaisa;
+    private long outstandingPaisa;
+    private long discountsPaisa;
+
+    // Ledger file, null for a ledger kept in memory only; written under ioLock
+    private final FileChannel channel;
+    private final Object ioLock = new Object();
+    // Entries recorded but not yet written, null once writing has failed
+    private ByteBuffer pending;
+    private IOException failure;
+
+    /**
+     * Constructor to create a ledger kept in memory only over the members already
+     * in the repository and register it for every later change.
+     *
+     * @param members       Repository holding the members
+     */
+    public PaymentLedger(MemberRepository members) {
+        this.entries = new ArrayDeque<>();
+        this.accounts = new IntHashMap<>();
+        this.channel = null;
+        start(members);
+    }
+
+    /**
+     * Constructor to create a ledger that continues the entries saved in a file,
+     * records the differences of the members already in the repository
+     * and registers it for every later change.
+     *
+     * @param members       Repository holding the members
+     * @param file          Ledger file, created if it does not exist
+     * @throws IOException if the file cannot be read or is not a ledger file
+     */
+    public PaymentLedger(MemberRepository members, File file) throws IOException {
+        this.entries = new ArrayDeque<>();
+        this.accounts = new IntHashMap<>();
+        FileChannel opened = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            load(opened, file);
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+        this.channel = opened;
+        this.pending = ByteBuffer.allocate(64 * ENTRY_SIZE);
+        start(members);
+    }
+
+    private void start(MemberRepository members) {
+        // Registered before reading the members so no member added meanwhile is missed,
+        // a member both read and heard about is recorded once as only differences are recorded
+        members.addListener(this);
+        for (GymMember member : members) {
+            if (member instanceof PremiumMember) {
+                synchronized (member) {
+                    record((PremiumMember) member, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the payment and discount changes of premium members.
+     * It is called while the member's lock is held, so every difference is seen exactly once.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        if (!(member instanceof PremiumMember)) {
+            return;
+        }
+        switch (change) {
+            case ADDED:
+                record((PremiumMember) member, true);
+                break;
+            case PAYMENT:
+            case DISCOUNT:
+            case REVERTED:
+                record((PremiumMember) member, false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Turns the difference between the member and its account into entries and totals;
+    // an account read from the file has no opening, its differences are ordinary entries
+    private synchronized void record(PremiumMember member, boolean opening) {
+        Account account = accounts.get(member.getId());
+        if (account == null) {
+            account = new Account();
+            accounts.put(member.getId(), account);
+        } else {
+            opening = false;
+        }
+        if (!account.charged) {
+            outstandingPaisa += member.getPremiumChargePaisa();
+            account.charged = true;
+        }
+
+        long paid = member.getPaidPaisa() - account.paidPaisa;
+        long discount = member.getDiscountPaisa() - account.discountPaisa;
+        long time = System.currentTimeMillis();
+        if (paid != 0) {
+            Kind kind = opening ? Kind.OPENING : paid > 0 ? Kind.PAYMENT : Kind.REVERSAL;
+            add(account, new Entry(entryCount, member.getId(), kind, false, paid, time));
+            account.paidPaisa += paid;
+            collectedPaisa += paid;
+            outstandingPaisa -= paid;
+        }
+        if (discount != 0) {
+            Kind kind = opening ? Kind.OPENING : discount > 0 ? Kind.DISCOUNT : Kind.REVERSAL;
+            add(account, new Entry(entryCount, member.getId(), kind, true, discount, time));
+            account.discountPaisa += discount;
+            discountsPaisa += discount;
+        }
+    }
+
+    // Keeps the entry for writing and in memory, dropping the oldest ones in memory past the limits
+    private void add(Account account, Entry entry) {
+        if (pending != null) {
+            if (pending.remaining() < ENTRY_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            encode(pending, entry);
+        }
+        keep(account, entry);
+    }
+
+    private void keep(Account account, Entry entry) {
+        entryCount = entry.sequence + 1;
+        entries.addLast(entry);
+        if (entries.size() > MAX_RECENT_ENTRIES) {
+            entries.removeFirst();
+        }
+        account.entries.addLast(entry);
+        if (account.entries.size() > MAX_MEMBER_ENTRIES) {
+            account.entries.removeFirst();
+        }
+    }
+
+    /**
+     * Returns the total paid by all premium members, in paisa.
+     */
+    public synchronized long getCollectedPaisa() {
+        return collectedPaisa;
+    }
+
+    /**
+     * Returns the total still due from all premium members, in paisa.
+     */
+    public synchronized long getOutstandingPaisa() {
+        return outstandingPaisa;
+    }
+
+    /**
+     * Returns the total of the discounts granted, in paisa.
+     */
+    public synchronized long getDiscountsPaisa() {
+        return discountsPaisa;
+    }
+
+    /**
+     * Returns the number of premium members with an account in the ledger.
+     */
+    public synchronized int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Returns the number of entries recorded, including the ones no longer kept.
+     */
+    public synchronized long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the amount a member has paid according to the ledger, in paisa.
+     *
+     * @param memberId      ID of the premium member
+     */
+    public synchronized long getPaidPaisa(int memberId) {
+        Account account = accounts.get(memberId);
+        return account == null ? 0 : account.paidPaisa;
+    }
+
+    /**
+     * Returns a copy of a member's newest entries in the order they were recorded.
+     *
+     * @param memberId      ID of the premium member
+     */
+    public synchronized List<Entry> getEntries(int memberId) {
+        Account account = accounts.get(memberId);
+        return account == null ? new ArrayList<>() : new ArrayList<>(account.entries);
+    }
+
+    /**
+     * Returns a copy of the most recent entries of all members, newest last.
+     *
+     * @param count     Maximum number of entries to return, at most MAX_RECENT_ENTRIES are kept
+     */
+    public synchronized List<Entry> getRecentEntries(int count) {
+        ArrayList<Entry> recent = new ArrayList<>(Math.max(0, Math.min(count, entries.size())));
+        Iterator<Entry> newestFirst = entries.descendingIterator();
+        while (recent.size() < count && newestFirst.hasNext()) {
+            recent.add(newestFirst.next());
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Returns every entry of a member in the order they were recorded, read from the ledger file.
+     * A ledger without a file returns the newest entries kept in memory.
+     *
+     * @param memberId      ID of the premium member
+     * @throws IOException if the entries cannot be written or read
+     */
+    public List<Entry> getHistory(int memberId) throws IOException {
+        if (channel == null) {
+            return getEntries(memberId);
+        }
+        synchronized (ioLock) {
+            flush();
+            List<Entry> history = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * ENTRY_SIZE);
+            long position = HEADER_SIZE;
+            long end = channel.size();
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                }
+                buffer.flip();
+                position += buffer.limit();
+                while (buffer.remaining() >= ENTRY_SIZE) {
+                    Entry entry = decode(buffer, null);
+                    if (entry.memberId == memberId) {
+                        history.add(entry);
+                    }
+                }
+            }
+            return history;
+        }
+    }
+
+    /**
+     * Writes the entries recorded since the last flush to the ledger file and forces them to disk.
+     * Once a write has failed, no more entries are written and every flush throws that error;
+     * the entries that were not written are recorded again as differences on the next start.
+     *
+     * @throws IOException if the entries cannot be written
+     */
+    public void flush() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        synchronized (ioLock) {
+            ByteBuffer batch;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                pending.flip();
+                batch = ByteBuffer.allocate(pending.remaining());
+                batch.put(pending);
+                batch.flip();
+                pending.clear();
+            }
+
+            long start = System.nanoTime();
+            long end = channel.size();
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch, end + batch.position());
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    pending = null;
+                }
+                // Drops a partly written batch so the file still ends with a whole entry
+                try {
+                    channel.truncate(end);
+                } catch (IOException ignored) {
+                    // The torn entry is dropped when the file is read
+                }
+                throw e;
+            } finally {
+                FLUSH_TIMER.record(start);
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining entries and closes the ledger file.
+     *
+     * @throws IOException if the entries cannot be written
+     */
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Rebuilds the accounts, totals and newest entries from the file, a new file gets its header;
+    // an entry torn by a crash at the end of the file is cut off
+    private void load(FileChannel file, File name) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long size = file.size();
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).flip();
+                while (header.hasRemaining()) {
+                    file.write(header, header.position());
+                }
+                file.force(true);
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * ENTRY_SIZE);
+            buffer.limit((int) Math.min(HEADER_SIZE, size));
+            while (buffer.hasRemaining() && file.read(buffer, buffer.position()) >= 0) {
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a payment ledger file: " + name.getName());
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported payment ledger version: " + version);
+            }
+
+            CRC32 crc = new CRC32();
+            long position = HEADER_SIZE;
+            long validEnd = position;
+            boolean torn = false;
+            while (position < size && !torn) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                while (buffer.hasRemaining() && file.read(buffer, position + buffer.position()) >= 0) {
+                }
+                buffer.flip();
+                position += buffer.limit();
+                while (buffer.remaining() >= ENTRY_SIZE) {
+                    Entry entry = decode(buffer, crc);
+                    if (entry == null) {
+                        torn = true;
+                        break;
+                    }
+                    replay(entry);
+                    validEnd += ENTRY_SIZE;
+                }
+            }
+            if (validEnd < size) {
+                file.truncate(validEnd);
+            }
+        } finally {
+            LOAD_TIMER.record(start);
+        }
+    }
+
+    // Applies an entry read from the file to its account and the totals
+    private void replay(Entry entry) {
+        Account account = accounts.get(entry.memberId);
+        if (account == null) {
+            account = new Account();
+            accounts.put(entry.memberId, account);
+        }
+        if (entry.discount) {
+            account.discountPaisa += entry.amountPaisa;
+            discountsPaisa += entry.amountPaisa;
+        } else {
+            account.paidPaisa += entry.amountPaisa;
+            collectedPaisa += entry.amountPaisa;
+            outstandingPaisa -= entry.amountPaisa;
+        }
+        keep(account, entry);
+    }
+
+    private static void encode(ByteBuffer buffer, Entry entry) {
+        int start = buffer.position();
+        buffer.putLong(entry.sequence);
+        buffer.putInt(entry.memberId);
+        buffer.put((byte) (entry.kind.ordinal() | (entry.discount ? DISCOUNT_AMOUNT : 0)));
+        buffer.putLong(entry.amountPaisa);
+        buffer.putLong(entry.timeMillis);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, ENTRY_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    // Reads one entry, or returns null if its checksum does not match when a CRC is given
+    private static Entry decode(ByteBuffer buffer, CRC32 crc) {
+        int start = buffer.position();
+        long sequence = buffer.getLong();
+        int memberId = buffer.getInt();
+        byte kind = buffer.get();
+        long amountPaisa = buffer.getLong();
+        long timeMillis = buffer.getLong();
+        int checksum = buffer.getInt();
+        if (crc != null) {
+            crc.reset();
+            crc.update(buffer.array(), start, ENTRY_SIZE - 4);
+            int ordinal = kind & ~DISCOUNT_AMOUNT;
+            if ((int) crc.getValue() != checksum || ordinal >= Kind.values().length) {
+                return null;
+            }
+        }
+        return new Entry(sequence, memberId, Kind.values()[kind & ~DISCOUNT_AMOUNT],
+                         (kind & DISCOUNT_AMOUNT) != 0, amountPaisa, timeMillis);
+    }
+
+    // Amounts of one member as recorded in the ledger
+    private static class Account {
+        // Whether the member's premium charge is counted in the outstanding total
+        private boolean charged;
+        private long paidPaisa;
+        private long discountPaisa;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>(2);
+    }
+
+    /**
+     * One immutable ledger entry.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final int memberId;
+        private final Kind kind;
+        private final boolean discount;
+        private final long amountPaisa;
+        private final long timeMillis;
+
+        Entry(long sequence, int memberId, Kind kind, boolean discount, long amountPaisa, long timeMillis) {
+            this.sequence = sequence;
+            this.memberId = memberId;
+            this.kind = kind;
+            this.discount = discount;
+            this.amountPaisa = amountPaisa;
+            this.timeMillis = timeMillis;
+        }
+
+        // Accessor (Getter) methods to retrieve the entry
+        public long getSequence() {
+            return sequence;
+        }
+        public int getMemberId() {
+            return memberId;
+        }
+        public Kind getKind() {
+            return kind;
+        }
+        /**
+         * Returns true if the amount is a discount, false if it is a payment.
+         */
+        public boolean isDiscount() {
+            return discount;
+        }
+        /**
+         * Returns the amount in paisa, negative for reversals.
+         */
+        public long getAmountPaisa() {
+            return amountPaisa;
+        }
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + kind + " member " + memberId + " " + Money.format(amountPaisa);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 /**
  * Class of a Premium Member of the gym.
  * Extends the abstract class GymMember and contains additional attributes and methods.
+ * The personal trainer is kept as a code of the shared MemberDictionaries.
  * 
  * @author Sadikshya Karki
  */
 public class PremiumMember extends GymMember {
     // Premium membership attributes
     private final double premiumCharge = 50000;
-    private String personalTrainer;
-    private boolean isFullPayment;
-    private double paidAmount;
-    private double discountAmount;
+    private volatile int personalTrainerCode;
+    private volatile boolean isFullPayment;
+    // Amounts are kept in exact paisa so payments add up to the charge exactly
+    private static final long PREMIUM_CHARGE_PAISA = 50000 * Money.PAISA_PER_RUPEE;
+    private volatile long paidPaisa;
+    private volatile long discountPaisa;
 
     /**
      * Constructor to initialize premium member details
@@ -28,10 +31,10 @@ public class PremiumMember extends GymMember {
     public PremiumMember(int id, String name, String location, String phone, String email,
     String gender, String DOB, String membershipStartDate, String personalTrainer) {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
-        this.personalTrainer = personalTrainer;
+        this.personalTrainerCode = MemberDictionaries.TRAINERS.encode(personalTrainer);
         this.isFullPayment = false;
-        this.paidAmount = 0;
-        this.discountAmount = 0;
+        this.paidPaisa = 0;
+        this.discountPaisa = 0;
     }
 
     // Accessor (Getter) methods to retrieve attribute values
@@ -39,25 +42,41 @@ public class PremiumMember extends GymMember {
         return premiumCharge; 
     }
     public String getPersonalTrainer() { 
-        return personalTrainer; 
+        return MemberDictionaries.TRAINERS.decode(personalTrainerCode); 
+    }
+    public int getPersonalTrainerCode() { 
+        return personalTrainerCode; 
     }
     public boolean getIsFullPayment() { 
         return isFullPayment; 
     }
     public double getPaidAmount() { 
-        return paidAmount; 
+        return Money.toAmount(paidPaisa); 
     }
     public double getDiscountAmount() { 
-        return discountAmount; 
+        return Money.toAmount(discountPaisa); 
+    }
+    public double getRemainingAmount() { 
+        return Money.toAmount(PREMIUM_CHARGE_PAISA - paidPaisa); 
+    }
+    public long getPremiumChargePaisa() { 
+        return PREMIUM_CHARGE_PAISA; 
+    }
+    public long getPaidPaisa() { 
+        return paidPaisa; 
+    }
+    public long getDiscountPaisa() { 
+        return discountPaisa; 
     }
 
     /**
      * Marks attendance and updates loyalty points for the premium member.
      */
     @Override
-    public void markAttendance() {
+    public synchronized void markAttendance() {
         this.attendance++;
         this.loyaltyPoints += 5;
+        changed(MemberChange.ATTENDANCE);
     }
 
     /**
@@ -66,31 +85,33 @@ public class PremiumMember extends GymMember {
      * @param amount       Amount to be paid
      * @return Message showing payment status
      */
-    public String payDueAmount(double amount) {
+    public synchronized String payDueAmount(double amount) {
         if (this.isFullPayment) {
             return "Payment is already complete.";
         }
 
-        if (this.paidAmount + amount > premiumCharge) {
+        long paisa = Money.toPaisa(amount);
+        if (this.paidPaisa + paisa > PREMIUM_CHARGE_PAISA) {
             return "Payment amount exceeds the premium charge.";
         }
 
-        this.paidAmount += amount;
-        if (this.paidAmount == premiumCharge) {
+        this.paidPaisa += paisa;
+        if (this.paidPaisa == PREMIUM_CHARGE_PAISA) {
             this.isFullPayment = true;
         }
+        changed(MemberChange.PAYMENT);
 
-        double remainingAmount = premiumCharge - this.paidAmount;
-        return "Payment successful. Remaining amount: " + remainingAmount;
+        return "Payment successful. Remaining amount: " + getRemainingAmount();
     }
 
     /**
      * Calculates discount if full payment is done.
      */
-    public void calculateDiscount() {
+    public synchronized void calculateDiscount() {
         if (isFullPayment) {
-            this.discountAmount = premiumCharge * 0.10;
-            System.out.println("Discount calculated: " + discountAmount);
+            this.discountPaisa = PREMIUM_CHARGE_PAISA / 10;
+            changed(MemberChange.DISCOUNT);
+            System.out.println("Discount calculated: " + getDiscountAmount());
         } else {
             System.out.println("No discount available. Complete payment first.");
         }
@@ -99,12 +120,48 @@ public class PremiumMember extends GymMember {
     /**
      * Resets premium member details.
      */
-    public void revertPremiumMember() {
-        super.resetMember();
-        this.personalTrainer = "";
+    public synchronized void revertPremiumMember() {
+        super.resetState();
+        this.personalTrainerCode = MemberDictionaries.TRAINERS.encode("");
         this.isFullPayment = false;
-        this.paidAmount = 0;
-        this.discountAmount = 0;
+        this.paidPaisa = 0;
+        this.discountPaisa = 0;
+        changed(MemberChange.REVERTED);
+    }
+
+    /**
+     * Restores payment details from saved member data.
+     *
+     * @param paidAmount        Saved paid amount
+     * @param isFullPayment     Saved full payment status
+     * @param discountAmount    Saved discount amount
+     */
+    synchronized void restorePayment(double paidAmount, boolean isFullPayment, double discountAmount) {
+        this.paidPaisa = Money.toPaisa(paidAmount);
+        this.isFullPayment = isFullPayment;
+        this.discountPaisa = Money.toPaisa(discountAmount);
+    }
+
+    /**
+     * Restores the personal trainer from saved member data.
+     *
+     * @param personalTrainer   Saved personal trainer
+     */
+    synchronized void restoreTrainer(String personalTrainer) {
+        this.personalTrainerCode = MemberDictionaries.TRAINERS.encode(personalTrainer);
+    }
+
+    /**
+     * Overrides restoreFrom() to also copy the trainer and payment details.
+     */
+    @Override
+    synchronized void restoreFrom(GymMember saved) {
+        super.restoreFrom(saved);
+        PremiumMember savedPremium = (PremiumMember) saved;
+        this.personalTrainerCode = savedPremium.personalTrainerCode;
+        this.paidPaisa = savedPremium.paidPaisa;
+        this.isFullPayment = savedPremium.isFullPayment;
+        this.discountPaisa = savedPremium.discountPaisa;
     }
 
     /**
@@ -113,13 +170,12 @@ public class PremiumMember extends GymMember {
     @Override
     public void display() {
         super.display();
-        System.out.println("Personal Trainer: " + personalTrainer);
-        System.out.println("Paid Amount: " + paidAmount);
+        System.out.println("Personal Trainer: " + getPersonalTrainer());
+        System.out.println("Paid Amount: " + getPaidAmount());
         System.out.println("Payment Status: " + (isFullPayment ? "Complete" : "Incomplete"));
-        double remainingAmount = premiumCharge - paidAmount;
-        System.out.println("Remaining Amount: " + remainingAmount);
+        System.out.println("Remaining Amount: " + getRemainingAmount());
         if (isFullPayment) {
-            System.out.println("Discount Amount: " + discountAmount);
+            System.out.println("Discount Amount: " + getDiscountAmount());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+import java.awt.Component;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Background task that shows its progress in a ProgressMonitor dialog and can be cancelled.
+ *
+ * The work runs on a SwingWorker thread so the window stays responsive, while
+ * succeeded(), failed() and finished() are called back on the event dispatch thread.
+ * A task created with an operation name records how long its work took in OperationMetrics.
+ *
+ * @author Sadikshya Karki
+ */
+public abstract class ProgressTask<T> extends SwingWorker<T, Void> {
+    private final ProgressMonitor monitor;
+    // Checks the Cancel button of the progress dialog on the event dispatch thread
+    private final Timer cancelCheck;
+    // Timer of the work, null if the task is not timed
+    private final OperationTimer timer;
+
+    /**
+     * Constructor to create a task with a progress dialog.
+     *
+     * @param parent        Component the progress dialog is shown over
+     * @param message       Message shown in the progress dialog
+     */
+    protected ProgressTask(Component parent, String message) {
+        this(parent, message, null);
+    }
+
+    /**
+     * Constructor to create a task with a progress dialog whose work is timed.
+     *
+     * @param parent        Component the progress dialog is shown over
+     * @param message       Message shown in the progress dialog
+     * @param operation     Name of the operation timer in OperationMetrics, or null
+     */
+    protected ProgressTask(Component parent, String message, String operation) {
+        this.timer = operation == null ? null : OperationMetrics.timer(operation);
+        this.monitor = new ProgressMonitor(parent, message, "", 0, 100);
+        this.monitor.setMillisToDecideToPopup(200);
+        this.monitor.setMillisToPopup(200);
+        addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                monitor.setProgress((Integer) event.getNewValue());
+            }
+        });
+        this.cancelCheck = new Timer(100, event -> {
+            if (monitor.isCanceled()) {
+                cancel(false);
+            }
+        });
+        this.cancelCheck.start();
+    }
+
+    /**
+     * Does the work on the background thread.
+     * Long loops should call updateProgress() regularly and stop when isCancelled() is true.
+     *
+     * @return Result passed to succeeded()
+     * @throws Exception if the work fails
+     */
+    protected abstract T work() throws Exception;
+
+    /**
+     * Called on the event dispatch thread when the work completed.
+     *
+     * @param result        Result of the work
+     */
+    protected abstract void succeeded(T result);
+
+    /**
+     * Called on the event dispatch thread when the work failed.
+     *
+     * @param error         Error thrown by the work
+     */
+    protected abstract void failed(Exception error);
+
+    /**
+     * Called on the event dispatch thread when the work was cancelled.
+     */
+    protected void cancelled() {
+    }
+
+    /**
+     * Called on the event dispatch thread after succeeded(), failed() or cancelled().
+     */
+    protected void finished() {
+    }
+
+    /**
+     * Reports progress as the amount done out of the total.
+     *
+     * @param done      Amount of work done
+     * @param total     Total amount of work
+     * @return true to keep going, false if the task was cancelled
+     */
+    protected boolean updateProgress(long done, long total) {
+        if (total > 0) {
+            setProgress((int) Math.min(100, done * 100 / total));
+        }
+        return !isCancelled();
+    }
+
+    @Override
+    protected final T doInBackground() throws Exception {
+        if (timer == null) {
+            return work();
+        }
+        long start = System.nanoTime();
+        try {
+            return work();
+        } finally {
+            timer.record(start);
+        }
+    }
+
+    @Override
+    protected final void done() {
+        cancelCheck.stop();
+        monitor.close();
+        try {
+            if (isCancelled()) {
+                cancelled();
+            } else {
+                succeeded(get());
+            }
+        } catch (CancellationException e) {
+            cancelled();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            failed(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled();
+        } finally {
+            finished();
+        }
+    }
+}
@@ -1,17 +1,24 @@
 /**
  * Class of a Regular Member of the gym.
  * Extends the abstract class GymMember and contains additional attributes and methods.
+ * The plan and referral source are kept as codes of the shared MemberDictionaries,
+ * so comparing plans compares two ints.
  * 
  * @author Sadikshya Karki
  */
 public class RegularMember extends GymMember {
     // Regular membership attributes
     private final int attendanceLimit = 30;
-    private boolean isEligibleForUpgrade;
-    private String removalReason;
-    private String referralSource;
-    private String plan;
-    private double price;
+    private volatile boolean isEligibleForUpgrade;
+    private volatile String removalReason;
+    private int referralSourceCode;
+    private volatile int planCode;
+    private volatile double price;
+
+    // Codes of the plans, given before any other plan name
+    private static final int BASIC = MemberDictionaries.PLANS.encode("basic");
+    private static final int STANDARD = MemberDictionaries.PLANS.encode("standard");
+    private static final int DELUXE = MemberDictionaries.PLANS.encode("deluxe");
 
     /**
      * Constructor to initialize regular member details.
@@ -31,8 +38,8 @@ public class RegularMember extends GymMember {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
         this.isEligibleForUpgrade = false;
         this.removalReason = "";
-        this.referralSource = referralSource;
-        this.plan = "basic";
+        this.referralSourceCode = MemberDictionaries.REFERRAL_SOURCES.encode(referralSource);
+        this.planCode = BASIC;
         this.price = 6500;
     }
 
@@ -47,26 +54,33 @@ public class RegularMember extends GymMember {
         return removalReason;
     }
     public String getReferralSource() { 
-        return referralSource;
+        return MemberDictionaries.REFERRAL_SOURCES.decode(referralSourceCode);
     }
     public String getPlan() { 
-        return plan;
+        return MemberDictionaries.PLANS.decode(planCode);
     }
     public double getPrice() { 
         return price;
     }
+    public int getReferralSourceCode() { 
+        return referralSourceCode;
+    }
+    public int getPlanCode() { 
+        return planCode;
+    }
 
     /**
      * Overrides markAttendance() to increment attendance and loyalty points.
      * Checks and updates eligibility for an upgrade.
      */
     @Override
-    public void markAttendance() {
+    public synchronized void markAttendance() {
         this.attendance++;
         this.loyaltyPoints += 5;
         if (this.attendance >= attendanceLimit) {
             this.isEligibleForUpgrade = true;
         }
+        changed(MemberChange.ATTENDANCE);
     }
 
      /**
@@ -76,12 +90,33 @@ public class RegularMember extends GymMember {
      * @return Price of the plan(if valid) or -1 (if invalid)
      */
     public double getPlanPrice(String plan) {
-        switch(plan.toLowerCase()) {
-            case "basic": return 6500;
-            case "standard": return 12500;
-            case "deluxe": return 18500;
-            default: return -1;
+        return planPrice(planCode(plan));
+    }
+
+    /**
+     * Method to get the code of a plan name, ignoring case.
+     * Names that are already in lower case are found without converting them.
+     *
+     * @param plan      Plan name (basic, standard, deluxe)
+     * @return Code of the plan (if valid) or -1 (if invalid)
+     */
+    public static int planCode(String plan) {
+        int code = MemberDictionaries.PLANS.find(plan);
+        if (planPrice(code) == -1 && plan != null) {
+            code = MemberDictionaries.PLANS.find(plan.toLowerCase());
+        }
+        return planPrice(code) == -1 ? -1 : code;
+    }
+
+    private static double planPrice(int code) {
+        if (code == BASIC) {
+            return 6500;
+        } else if (code == STANDARD) {
+            return 12500;
+        } else if (code == DELUXE) {
+            return 18500;
         }
+        return -1;
     }
 
     /**
@@ -90,22 +125,22 @@ public class RegularMember extends GymMember {
      * @param newPlan    New plan to upgrade to
      * @return Result message of the upgrade process
      */
-    public String upgradePlan(String newPlan) {
+    public synchronized String upgradePlan(String newPlan) {
         if (!isEligibleForUpgrade) {
             return "Not eligible for upgrade. Need more attendance.";
         }
         
-        if (newPlan.toLowerCase().equals(this.plan)) {
+        int newPlanCode = planCode(newPlan);
+        if (newPlanCode == this.planCode) {
             return "Already subscribed to this plan.";
         }
-
-        double newPrice = getPlanPrice(newPlan);
-        if (newPrice == -1) {
+        if (newPlanCode == -1) {
             return "Invalid plan selected.";
         }
 
-        this.plan = newPlan.toLowerCase();
-        this.price = newPrice;
+        this.planCode = newPlanCode;
+        this.price = planPrice(newPlanCode);
+        changed(MemberChange.UPGRADED);
         return "Plan upgraded successfully to " + newPlan;
     }
 
@@ -114,12 +149,41 @@ public class RegularMember extends GymMember {
      *
      * @param removalReason      Reason for reverting the regular member
      */
-    public void revertRegularMember(String removalReason) {
-        super.resetMember();
+    public synchronized void revertRegularMember(String removalReason) {
+        super.resetState();
         this.isEligibleForUpgrade = false;
-        this.plan = "basic";
+        this.planCode = BASIC;
         this.price = 6500;
         this.removalReason = removalReason;
+        changed(MemberChange.REVERTED);
+    }
+
+    /**
+     * Restores plan details from saved member data.
+     *
+     * @param plan                  Saved plan name
+     * @param price                 Saved plan price
+     * @param isEligibleForUpgrade  Saved upgrade eligibility
+     * @param removalReason         Saved removal reason
+     */
+    synchronized void restorePlan(String plan, double price, boolean isEligibleForUpgrade, String removalReason) {
+        this.planCode = MemberDictionaries.PLANS.encode(plan);
+        this.price = price;
+        this.isEligibleForUpgrade = isEligibleForUpgrade;
+        this.removalReason = removalReason;
+    }
+
+    /**
+     * Overrides restoreFrom() to also copy the plan details.
+     */
+    @Override
+    synchronized void restoreFrom(GymMember saved) {
+        super.restoreFrom(saved);
+        RegularMember savedRegular = (RegularMember) saved;
+        this.planCode = savedRegular.planCode;
+        this.price = savedRegular.price;
+        this.isEligibleForUpgrade = savedRegular.isEligibleForUpgrade;
+        this.removalReason = savedRegular.removalReason;
     }
 
     /**
@@ -128,7 +192,7 @@ public class RegularMember extends GymMember {
     @Override
     public void display() {
         super.display();
-        System.out.println("Plan: " + plan);
+        System.out.println("Plan: " + getPlan());
         System.out.println("Price: " + price);
         if (!removalReason.isEmpty()) {
             System.out.println("Removal Reason: " + removalReason);
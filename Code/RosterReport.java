@@ -0,0 +1,337 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Report of the members, revenue, attendance and active rate of the roster
+ * grouped by location, by regular member plan and by premium member trainer.
+ *
+ * The roster is split in ranges that are totalled in parallel on the common fork/join pool.
+ * Every range adds its members into totals of its own, arrays indexed by the dictionary
+ * codes of the location, plan and trainer, so no two threads ever write the same counter
+ * and a member costs a few array increments. The totals of two ranges are merged by adding
+ * their arrays as the tasks join, and the names of the codes are looked up once at the end.
+ *
+ * Each member is read under its lock, so its row is consistent; members that change while
+ * the report runs may be counted before or after the change.
+ *
+ * @author Sadikshya Karki
+ */
+public class RosterReport {
+    /**
+     * Attribute the members are grouped by
+     */
+    public enum Grouping {
+        /** Location of every member */
+        LOCATION("Location"),
+        /** Plan of regular members */
+        PLAN("Plan"),
+        /** Personal trainer of premium members */
+        TRAINER("Trainer");
+
+        private final String title;
+
+        Grouping(String title) {
+            this.title = title;
+        }
+
+        /**
+         * Returns the column title of the grouping.
+         */
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    // Members totalled by one task without splitting further
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final String NO_VALUE = "(none)";
+
+    private static final OperationTimer REPORT_TIMER = OperationMetrics.timer("rosterReport");
+
+    private final Group total;
+    private final List<List<Group>> groups;
+    private final long elapsedNanos;
+
+    private RosterReport(Group total, List<List<Group>> groups, long elapsedNanos) {
+        this.total = total;
+        this.groups = groups;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Computes the report of every member in the repository.
+     *
+     * @param members       Repository holding the members
+     */
+    public static RosterReport of(MemberRepository members) {
+        return of(members.getAll());
+    }
+
+    /**
+     * Computes the report of a list of members.
+     *
+     * @param members       Members to report on, a list with fast access by index
+     */
+    public static RosterReport of(List<GymMember> members) {
+        long start = System.nanoTime();
+        Totals totals = ForkJoinPool.commonPool().invoke(new TotalTask(members, 0, members.size()));
+
+        List<List<Group>> groups = new ArrayList<>();
+        groups.add(totals.byLocation.toGroups(MemberDictionaries.LOCATIONS));
+        groups.add(totals.byPlan.toGroups(MemberDictionaries.PLANS));
+        groups.add(totals.byTrainer.toGroups(MemberDictionaries.TRAINERS));
+        Group total = totals.byLocation.toTotal("Total");
+
+        long elapsed = System.nanoTime() - start;
+        REPORT_TIMER.record(start);
+        return new RosterReport(total, groups, elapsed);
+    }
+
+    /**
+     * Returns the totals of all members.
+     */
+    public Group getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the groups of a grouping, sorted by name.
+     * Members without a value are in a group named "(none)".
+     *
+     * @param grouping      Attribute the members are grouped by
+     */
+    public List<Group> getGroups(Grouping grouping) {
+        return groups.get(grouping.ordinal());
+    }
+
+    /**
+     * Returns the time it took to compute the report.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the report as text tables, one per grouping, with amounts in rupees.
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        for (Grouping grouping : Grouping.values()) {
+            report.append(String.format("%-20s %10s %10s %8s %12s %10s %16s %16s%n",
+                                        grouping.getTitle(), "Members", "Active", "Active%",
+                                        "Attendance", "Avg", "Plan Revenue", "Collected"));
+            for (Group group : getGroups(grouping)) {
+                appendRow(report, group);
+            }
+            if (grouping == Grouping.LOCATION) {
+                appendRow(report, total);
+            }
+            report.append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, Group group) {
+        report.append(String.format("%-20s %10d %10d %7.1f%% %12d %10.1f %16s %16s%n",
+                                    group.getName(), group.getMemberCount(), group.getActiveCount(),
+                                    group.getActiveRate() * 100, group.getAttendanceTotal(),
+                                    group.getAverageAttendance(), Money.format(group.getPlanRevenuePaisa()),
+                                    Money.format(group.getCollectedPaisa())));
+    }
+
+    // Totals of a range of members, split in halves until it is small enough
+    private static final class TotalTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+        private final List<GymMember> members;
+        private final int from;
+        private final int to;
+
+        TotalTask(List<GymMember> members, int from, int to) {
+            this.members = members;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                TotalTask right = new TotalTask(members, middle, to);
+                right.fork();
+                Totals totals = new TotalTask(members, from, middle).compute();
+                totals.merge(right.join());
+                return totals;
+            }
+            Totals totals = new Totals();
+            for (int i = from; i < to; i++) {
+                totals.add(members.get(i));
+            }
+            return totals;
+        }
+    }
+
+    // Totals of the three groupings, owned by one task until it is merged
+    private static final class Totals {
+        private final CodeTotals byLocation = new CodeTotals();
+        private final CodeTotals byPlan = new CodeTotals();
+        private final CodeTotals byTrainer = new CodeTotals();
+
+        void add(GymMember member) {
+            synchronized (member) {
+                int attendance = member.getAttendance();
+                boolean active = member.getActiveStatus();
+                if (member instanceof RegularMember) {
+                    RegularMember regMember = (RegularMember) member;
+                    long price = Money.toPaisa(regMember.getPrice());
+                    byLocation.add(member.getLocationCode(), active, attendance, price, 0);
+                    byPlan.add(regMember.getPlanCode(), active, attendance, price, 0);
+                } else {
+                    PremiumMember premMember = (PremiumMember) member;
+                    long charge = premMember.getPremiumChargePaisa();
+                    long paid = premMember.getPaidPaisa();
+                    byLocation.add(member.getLocationCode(), active, attendance, charge, paid);
+                    byTrainer.add(premMember.getPersonalTrainerCode(), active, attendance, charge, paid);
+                }
+            }
+        }
+
+        void merge(Totals other) {
+            byLocation.merge(other.byLocation);
+            byPlan.merge(other.byPlan);
+            byTrainer.merge(other.byTrainer);
+        }
+    }
+
+    // Counters of one grouping, indexed by dictionary code + 1 so the null code has slot 0
+    private static final class CodeTotals {
+        private long[] members = new long[8];
+        private long[] active = new long[8];
+        private long[] attendance = new long[8];
+        private long[] revenuePaisa = new long[8];
+        private long[] collectedPaisa = new long[8];
+
+        void add(int code, boolean isActive, int memberAttendance, long revenue, long collected) {
+            int slot = code + 1;
+            if (slot >= members.length) {
+                grow(slot + 1);
+            }
+            members[slot]++;
+            if (isActive) {
+                active[slot]++;
+            }
+            attendance[slot] += memberAttendance;
+            revenuePaisa[slot] += revenue;
+            collectedPaisa[slot] += collected;
+        }
+
+        void merge(CodeTotals other) {
+            if (other.members.length > members.length) {
+                grow(other.members.length);
+            }
+            for (int slot = 0; slot < other.members.length; slot++) {
+                members[slot] += other.members[slot];
+                active[slot] += other.active[slot];
+                attendance[slot] += other.attendance[slot];
+                revenuePaisa[slot] += other.revenuePaisa[slot];
+                collectedPaisa[slot] += other.collectedPaisa[slot];
+            }
+        }
+
+        private void grow(int minLength) {
+            int length = Math.max(minLength, members.length * 2);
+            members = Arrays.copyOf(members, length);
+            active = Arrays.copyOf(active, length);
+            attendance = Arrays.copyOf(attendance, length);
+            revenuePaisa = Arrays.copyOf(revenuePaisa, length);
+            collectedPaisa = Arrays.copyOf(collectedPaisa, length);
+        }
+
+        // One group per code with members, sorted by name
+        List<Group> toGroups(StringDictionary dictionary) {
+            List<Group> groups = new ArrayList<>();
+            for (int slot = 0; slot < members.length; slot++) {
+                if (members[slot] > 0) {
+                    String name = slot == 0 ? NO_VALUE : dictionary.decode(slot - 1);
+                    groups.add(new Group(name, members[slot], active[slot], attendance[slot],
+                                         revenuePaisa[slot], collectedPaisa[slot]));
+                }
+            }
+            groups.sort((a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+            return groups;
+        }
+
+        // One group adding up every code
+        Group toTotal(String name) {
+            return new Group(name, sum(members), sum(active), sum(attendance), sum(revenuePaisa), sum(collectedPaisa));
+        }
+
+        private static long sum(long[] values) {
+            long sum = 0;
+            for (long value : values) {
+                sum += value;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Totals of the members sharing a location, plan or trainer.
+     */
+    public static class Group {
+        private final String name;
+        private final long memberCount;
+        private final long activeCount;
+        private final long attendanceTotal;
+        private final long planRevenuePaisa;
+        private final long collectedPaisa;
+
+        Group(String name, long memberCount, long activeCount, long attendanceTotal,
+              long planRevenuePaisa, long collectedPaisa) {
+            this.name = name;
+            this.memberCount = memberCount;
+            this.activeCount = activeCount;
+            this.attendanceTotal = attendanceTotal;
+            this.planRevenuePaisa = planRevenuePaisa;
+            this.collectedPaisa = collectedPaisa;
+        }
+
+        // Accessor (Getter) methods to retrieve the totals
+        public String getName() {
+            return name;
+        }
+        public long getMemberCount() {
+            return memberCount;
+        }
+        public long getActiveCount() {
+            return activeCount;
+        }
+        public long getAttendanceTotal() {
+            return attendanceTotal;
+        }
+        /**
+         * Returns the plan prices of regular members and the premium charges, in paisa,
+         * counted like the dashboard's plan revenue.
+         */
+        public long getPlanRevenuePaisa() {
+            return planRevenuePaisa;
+        }
+        /**
+         * Returns the amount premium members have paid, in paisa.
+         */
+        public long getCollectedPaisa() {
+            return collectedPaisa;
+        }
+        /**
+         * Returns the share of active members, from 0 to 1.
+         */
+        public double getActiveRate() {
+            return memberCount == 0 ? 0 : (double) activeCount / memberCount;
+        }
+        public double getAverageAttendance() {
+            return memberCount == 0 ? 0 : (double) attendanceTotal / memberCount;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Live statistics of the roster, kept up to date on every member change.
+ *
+ * The statistics listen to member changes and remember the counted state of every member
+ * (attendance, active, eligible for upgrade and plan price). A change compares the member
+ * with its counted state and adjusts only the counters that differ, so reading any number
+ * costs the same however large the roster is and never scans the members.
+ *
+ * Counters are LongAdders so check-ins on many threads do not contend on one counter.
+ * Each number is exact on its own; numbers read while members change may come from
+ * slightly different moments.
+ *
+ * @author Sadikshya Karki
+ */
+public class RosterStatistics implements MemberListener {
+    private final LongAdder memberCount = new LongAdder();
+    private final LongAdder premiumCount = new LongAdder();
+    private final LongAdder activeCount = new LongAdder();
+    private final LongAdder eligibleCount = new LongAdder();
+    private final LongAdder planRevenuePaisa = new LongAdder();
+    private final LongAdder attendanceTotal = new LongAdder();
+
+    // Counted state of every member, changed only while holding that member's lock
+    private final IntHashMap<Counted> counted;
+    private final StampedLock lock;
+
+    /**
+     * Constructor to create statistics over the members already in the repository
+     * and register them for every later change.
+     *
+     * @param members       Repository holding the members
+     */
+    public RosterStatistics(MemberRepository members) {
+        this.counted = new IntHashMap<>();
+        this.lock = new StampedLock();
+        // Registered before reading the members so no member added meanwhile is missed,
+        // a member both read and heard about is counted once as add() skips counted IDs
+        members.addListener(this);
+        for (GymMember member : members) {
+            synchronized (member) {
+                add(member);
+            }
+        }
+    }
+
+    /**
+     * Adjusts the counters for a member change.
+     * It is called while the member's lock is held, so changes of one member are counted in order.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        switch (change) {
+            case ADDED:
+                add(member);
+                break;
+            case ATTENDANCE:
+            case ACTIVATED:
+            case DEACTIVATED:
+            case UPGRADED:
+            case REVERTED:
+                update(member);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Counts a new member
+    private void add(GymMember member) {
+        Counted state = new Counted();
+        long stamp = lock.writeLock();
+        try {
+            if (counted.putIfAbsent(member.getId(), state) != null) {
+                return;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        memberCount.increment();
+        if (member instanceof PremiumMember) {
+            premiumCount.increment();
+        }
+        update(member, state);
+    }
+
+    private void update(GymMember member) {
+        Counted state = find(member.getId());
+        if (state != null) {
+            update(member, state);
+        }
+    }
+
+    // Moves the member's counted state to its current state
+    private void update(GymMember member, Counted state) {
+        int attendance = member.getAttendance();
+        if (attendance != state.attendance) {
+            attendanceTotal.add(attendance - state.attendance);
+            state.attendance = attendance;
+        }
+
+        boolean active = member.getActiveStatus();
+        if (active != state.active) {
+            activeCount.add(active ? 1 : -1);
+            state.active = active;
+        }
+
+        boolean eligible = member instanceof RegularMember && ((RegularMember) member).getIsEligibleForUpgrade();
+        if (eligible != state.eligible) {
+            eligibleCount.add(eligible ? 1 : -1);
+            state.eligible = eligible;
+        }
+
+        long price = member instanceof RegularMember ? Money.toPaisa(((RegularMember) member).getPrice())
+                   : ((PremiumMember) member).getPremiumChargePaisa();
+        if (price != state.pricePaisa) {
+            planRevenuePaisa.add(price - state.pricePaisa);
+            state.pricePaisa = price;
+        }
+    }
+
+    private Counted find(int id) {
+        long stamp = lock.tryOptimisticRead();
+        Counted state = null;
+        try {
+            state = counted.get(id);
+        } catch (RuntimeException e) {
+            // The map was being resized while it was read, read it again under the lock
+            stamp = 0;
+        }
+        if (lock.validate(stamp)) {
+            return state;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return counted.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Accessor (Getter) methods to read the statistics
+    public long getMemberCount() {
+        return memberCount.sum();
+    }
+    public long getPremiumCount() {
+        return premiumCount.sum();
+    }
+    public long getRegularCount() {
+        return memberCount.sum() - premiumCount.sum();
+    }
+    public long getActiveCount() {
+        return activeCount.sum();
+    }
+    /**
+     * Returns the number of regular members eligible for a plan upgrade.
+     */
+    public long getEligibleForUpgradeCount() {
+        return eligibleCount.sum();
+    }
+    /**
+     * Returns the sum of the plan prices of regular members and the premium charges, in paisa.
+     */
+    public long getPlanRevenuePaisa() {
+        return planRevenuePaisa.sum();
+    }
+    /**
+     * Returns the sum of the attendance of all members.
+     */
+    public long getAttendanceTotal() {
+        return attendanceTotal.sum();
+    }
+
+    // State of a member as it is currently counted
+    private static class Counted {
+        private int attendance;
+        private boolean active;
+        private boolean eligible;
+        private long pricePaisa;
+    }
+}
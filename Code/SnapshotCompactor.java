@@ -0,0 +1,244 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Background task that keeps the journal short by saving a snapshot of the roster
+ * and discarding the journal records the snapshot already contains.
+ *
+ * Restoring the members after a restart or a crash reads the last snapshot and replays the
+ * journal on top of it, so without compaction every change ever made is replayed. The compactor
+ * checks the journal at a fixed interval and compacts once the journal has grown to half the size
+ * of the snapshot (and at least to a minimum size), so replaying never costs much more than
+ * reading the snapshot.
+ *
+ * A compaction takes a journal checkpoint before copying the roster, so every record before
+ * the checkpoint is already in the copy. The snapshot is written while members keep changing:
+ * each member is written under its lock, and changes made after the checkpoint stay in the
+ * journal and are replayed on top. The snapshot is moved into place before the journal is cut,
+ * so a crash at any point leaves a snapshot and a journal that restore to the latest state.
+ *
+ * The journal does not record the days of visits, so a compactor given the attendance history
+ * also saves it, with every compaction and at every check with new check-ins since its last save.
+ * A compactor given the payment ledger writes its new entries at every check.
+ *
+ * @author Sadikshya Karki
+ */
+public class SnapshotCompactor {
+    /**
+     * Default time between two checks of the journal size, in seconds
+     */
+    public static final long DEFAULT_INTERVAL_SECONDS = 60;
+
+    /**
+     * Default journal size below which it is never compacted, in bytes
+     */
+    public static final long DEFAULT_MIN_JOURNAL_BYTES = 4L << 20;
+
+    private static final OperationTimer COMPACT_TIMER = OperationMetrics.timer("compactSnapshot");
+
+    private final MemberRepository members;
+    private final MemberJournal journal;
+    private final File snapshotFile;
+    private final long minJournalBytes;
+    // Only one compaction runs at a time, whether scheduled or started by the user
+    private final Object compactLock = new Object();
+
+    private ScheduledExecutorService scheduler;
+    private volatile IOException lastFailure;
+
+    // Attendance history saved along with the snapshot, null if there is none
+    private volatile AttendanceHistory history;
+    private volatile File historyFile;
+    // Check-in count of the history when it was last saved, changed under compactLock;
+    // a history that was only loaded has no check-ins to save
+    private long historySavedCount;
+    // Payment ledger whose entries are written at every check, null if there is none
+    private volatile PaymentLedger ledger;
+
+    /**
+     * Constructor to create a compactor of the default snapshot "MemberDetails.dat".
+     *
+     * @param members       Repository holding the members
+     * @param journal       Journal recording the changes of the members
+     */
+    public SnapshotCompactor(MemberRepository members, MemberJournal journal) {
+        this(members, journal, new File(MemberSnapshot.FILE_NAME), DEFAULT_MIN_JOURNAL_BYTES);
+    }
+
+    /**
+     * Constructor to create a compactor of a snapshot file.
+     *
+     * @param members           Repository holding the members
+     * @param journal           Journal recording the changes of the members
+     * @param snapshotFile      Snapshot file restored together with the journal
+     * @param minJournalBytes   Journal size below which it is never compacted
+     */
+    public SnapshotCompactor(MemberRepository members, MemberJournal journal, File snapshotFile,
+                             long minJournalBytes) {
+        this.members = members;
+        this.journal = journal;
+        this.snapshotFile = snapshotFile;
+        this.minJournalBytes = minJournalBytes;
+    }
+
+    /**
+     * Also saves an attendance history with every compaction and at every check
+     * that finds new check-ins.
+     *
+     * @param history       Attendance history to save
+     * @param file          History file to write
+     */
+    public void setAttendanceHistory(AttendanceHistory history, File file) {
+        this.historyFile = file;
+        this.history = history;
+    }
+
+    /**
+     * Also writes the new entries of a payment ledger at every check.
+     *
+     * @param ledger        Payment ledger opened on its file
+     */
+    public void setLedger(PaymentLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Starts checking the journal in the background at the default interval.
+     */
+    public void start() {
+        start(DEFAULT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts checking the journal in the background and compacting it when it is due.
+     *
+     * @param interval      Time between two checks
+     * @param unit          Unit of the interval
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactIfDue, interval, interval, unit);
+    }
+
+    /**
+     * Stops the background checks and waits for a running compaction to finish.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    /**
+     * Returns true if the journal has grown enough to be compacted.
+     */
+    public boolean isDue() {
+        long journalSize = journal.getSize();
+        return journalSize >= minJournalBytes && journalSize >= snapshotFile.length() / 2;
+    }
+
+    /**
+     * Saves a snapshot of all members and discards the journal records it contains.
+     * The attendance history, if there is one, is saved too.
+     *
+     * @return true if the snapshot was saved
+     * @throws IOException if the snapshot, the journal or the history cannot be written
+     */
+    public boolean compact() throws IOException {
+        return compact(written -> true);
+    }
+
+    /**
+     * Saves a snapshot of all members and discards the journal records it contains.
+     * The attendance history, if there is one, is saved too.
+     *
+     * @param progress      Called with the number of members written so far, returns false to cancel
+     * @return true if the snapshot was saved, false if it was cancelled
+     * @throws IOException if the snapshot, the journal or the history cannot be written
+     */
+    public boolean compact(IntPredicate progress) throws IOException {
+        synchronized (compactLock) {
+            long start = System.nanoTime();
+            // Taken before the copy, so members added meanwhile are in the copy or after the checkpoint
+            long checkpoint = journal.checkpoint();
+            List<GymMember> roster = members.getAll();
+            if (!MemberSnapshot.save(snapshotFile, roster, progress)) {
+                return false;
+            }
+            journal.discardBefore(checkpoint);
+            saveHistory();
+            COMPACT_TIMER.record(start);
+            return true;
+        }
+    }
+
+    /**
+     * Saves the attendance history if there were check-ins since it was last saved.
+     *
+     * @throws IOException if the history cannot be written
+     */
+    public void saveHistoryIfChanged() throws IOException {
+        synchronized (compactLock) {
+            AttendanceHistory current = history;
+            if (current != null && current.getCheckInCount() != historySavedCount) {
+                saveHistory();
+            }
+        }
+    }
+
+    // Called under compactLock; the count is read first, so check-ins during the save count as unsaved
+    private void saveHistory() throws IOException {
+        AttendanceHistory current = history;
+        if (current == null) {
+            return;
+        }
+        long count = current.getCheckInCount();
+        current.save(historyFile);
+        historySavedCount = count;
+    }
+
+    /**
+     * Returns the error of the last background compaction, or null if it succeeded.
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    private void compactIfDue() {
+        try {
+            if (isDue()) {
+                compact();
+            } else {
+                saveHistoryIfChanged();
+            }
+            PaymentLedger current = ledger;
+            if (current != null) {
+                current.flush();
+            }
+            lastFailure = null;
+        } catch (IOException e) {
+            // Kept for the caller and tried again at the next check, the journal still holds every change
+            lastFailure = e;
+            System.err.println("Error compacting the journal or saving the attendance history or ledger: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that gives every distinct string a small int code.
+ *
+ * Codes are handed out in the order the strings are first seen, starting at 0, so a
+ * column of repeating values (locations, genders, plans) can be stored as an int per
+ * member plus one copy of each distinct string, and two values are equal exactly
+ * when their codes are equal. A null value has the code -1.
+ *
+ * The dictionary can be shared by all members and used from several threads at once.
+ * Finding and decoding never lock; only giving a new value its code takes the dictionary's lock.
+ * Codes are never taken back, so a dictionary is meant for values that repeat.
+ *
+ * @author Sadikshya Karki
+ */
+public class StringDictionary {
+    /**
+     * Code of a null value
+     */
+    public static final int NULL_CODE = -1;
+
+    private final ConcurrentHashMap<String, Integer> codes;
+    // Values by code; a value is stored before its code is handed out
+    private volatile String[] values;
+    private volatile int size;
+
+    /**
+     * Constructor to create an empty dictionary.
+     */
+    public StringDictionary() {
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[8];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the code of a value, giving it the next code if it is new.
+     *
+     * @param value     Value to encode, may be null
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Returns the code of a value, or -1 if the value has no code.
+     *
+     * @param value     Value to look for
+     */
+    public int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * Returns the value of a code.
+     *
+     * @param code      Code returned by encode(), or -1 for null
+     */
+    public String decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        String[] current = values;
+        String value = code >= 0 && code < current.length ? current[code] : null;
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown dictionary code " + code);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of distinct values.
+     */
+    public int size() {
+        return size;
+    }
+}
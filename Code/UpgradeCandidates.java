@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regular members who are eligible for a plan upgrade.
+ *
+ * Eligible members are kept as set bits, one bit per member ID, in blocks of BLOCK_BITS
+ * consecutive IDs held in a map sorted by block. Listing or paging through the candidates
+ * walks the set bits in ID order instead of scanning the roster, and a million members with
+ * consecutive IDs take about 125 KB. Only blocks holding a candidate are kept, so every
+ * int ID works: negative IDs, and a lone huge ID costs one block rather than a bitset
+ * reaching up to it.
+ *
+ * When a member crosses the attendance limit and becomes eligible, its ID is also put on a
+ * notification queue that the sales team (or any other consumer) can take from. The queue is
+ * bounded; if nobody takes from it, the oldest notifications are dropped but the bitset
+ * still lists every candidate.
+ *
+ * @author Sadikshya Karki
+ */
+public class UpgradeCandidates implements MemberListener {
+    /**
+     * Number of notifications kept when nobody takes them
+     */
+    public static final int QUEUE_CAPACITY = 10_000;
+
+    /**
+     * Number of consecutive IDs in one block of bits
+     */
+    public static final int BLOCK_BITS = 4096;
+
+    private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_BITS);
+
+    // Bits of the eligible IDs by block number (ID >> BLOCK_SHIFT, which keeps negative IDs in order)
+    private final TreeMap<Integer, long[]> eligible;
+    private int count;
+    private final BlockingQueue<Integer> notifications;
+
+    /**
+     * Constructor to collect the eligible members already in the repository
+     * and register for every later change.
+     *
+     * @param members       Repository holding the members
+     */
+    public UpgradeCandidates(MemberRepository members) {
+        this.eligible = new TreeMap<>();
+        this.notifications = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        // Registered before reading the members so no member added meanwhile is missed,
+        // a member both read and heard about only has its bit set to the same value twice
+        members.addListener(this);
+        for (GymMember member : members) {
+            if (member instanceof RegularMember) {
+                synchronized (member) {
+                    update((RegularMember) member, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tracks the eligibility of regular members.
+     * It is called while the member's lock is held, so a member is notified once per crossing.
+     */
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        if (!(member instanceof RegularMember)) {
+            return;
+        }
+        switch (change) {
+            case ATTENDANCE:
+                // Attendance can only make a member eligible
+                if (((RegularMember) member).getIsEligibleForUpgrade()) {
+                    update((RegularMember) member, true);
+                }
+                break;
+            case ADDED:
+            case REVERTED:
+                update((RegularMember) member, false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Sets the member's bit to its eligibility, notifying if it just became eligible
+    private void update(RegularMember member, boolean notify) {
+        int id = member.getId();
+        boolean isEligible = member.getIsEligibleForUpgrade();
+        synchronized (this) {
+            if (contains(id) == isEligible) {
+                return;
+            }
+            if (isEligible) {
+                eligible.computeIfAbsent(id >> BLOCK_SHIFT, block -> new long[BLOCK_BITS / 64])
+                        [(id & (BLOCK_BITS - 1)) >>> 6] |= 1L << id;
+            } else {
+                long[] words = eligible.get(id >> BLOCK_SHIFT);
+                words[(id & (BLOCK_BITS - 1)) >>> 6] &= ~(1L << id);
+                if (isEmpty(words)) {
+                    eligible.remove(id >> BLOCK_SHIFT);
+                }
+            }
+            count += isEligible ? 1 : -1;
+        }
+        if (isEligible && notify) {
+            // Drop the oldest notification rather than block the member change
+            while (!notifications.offer(id)) {
+                notifications.poll();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of eligible regular members.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns true if the member with the ID is eligible.
+     *
+     * @param id        ID of the regular member
+     */
+    public synchronized boolean isEligible(int id) {
+        return contains(id);
+    }
+
+    /**
+     * Returns the IDs of eligible members in ID order, starting at an ID.
+     * The next page starts at the last returned ID plus one.
+     *
+     * @param fromId        Smallest ID to return
+     * @param limit         Maximum number of IDs to return
+     */
+    public synchronized int[] page(int fromId, int limit) {
+        int[] ids = new int[Math.max(0, Math.min(limit, count))];
+        int found = 0;
+        for (Map.Entry<Integer, long[]> block : eligible.tailMap(fromId >> BLOCK_SHIFT, true).entrySet()) {
+            int firstId = block.getKey() << BLOCK_SHIFT;
+            long[] words = block.getValue();
+            for (int i = 0; i < words.length && found < ids.length; i++) {
+                long word = words[i];
+                while (word != 0 && found < ids.length) {
+                    int id = firstId + i * 64 + Long.numberOfTrailingZeros(word);
+                    if (id >= fromId) {
+                        ids[found++] = id;
+                    }
+                    word &= word - 1;
+                }
+            }
+            if (found == ids.length) {
+                break;
+            }
+        }
+        return found == ids.length ? ids : Arrays.copyOf(ids, found);
+    }
+
+    // Called while holding the lock of the candidates
+    private boolean contains(int id) {
+        long[] words = eligible.get(id >> BLOCK_SHIFT);
+        return words != null && (words[(id & (BLOCK_BITS - 1)) >>> 6] & (1L << id)) != 0;
+    }
+
+    private static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the IDs of members who became eligible since the last call, without waiting.
+     *
+     * @param max       Maximum number of IDs to take
+     */
+    public List<Integer> pollNewlyEligible(int max) {
+        List<Integer> ids = new ArrayList<>();
+        notifications.drainTo(ids, max);
+        return ids;
+    }
+
+    /**
+     * Waits for the next member to become eligible.
+     *
+     * @param timeout       Longest time to wait
+     * @param unit          Unit of the timeout
+     * @return ID of the member, or null if none became eligible in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Integer takeNewlyEligible(long timeout, TimeUnit unit) throws InterruptedException {
+        return notifications.poll(timeout, unit);
+    }
+}
@@ -0,0 +1,267 @@
+import java.util.Arrays;
+
+/**
+ * Set of the days on which one member visited the gym, stored as epoch days.
+ *
+ * While a member visits rarely, the days are kept as a sorted array of 2-byte offsets from the
+ * first day. Once the array would take more memory than one bit per day, the calendar switches to
+ * a bitmap of 64-day words, so a regular visitor costs about 48 bytes per year (the same idea as
+ * the array and bitmap containers of a roaring bitmap). Counting the visits in a window adds up
+ * the popcounts of the words, and a streak is found a word at a time.
+ *
+ * Methods are synchronized, so a calendar can be read while its member checks in.
+ *
+ * @author Sadikshya Karki
+ */
+public class VisitCalendar {
+    private static final int MAX_OFFSET = Character.MAX_VALUE;
+
+    // First day of the offsets, or of the first bitmap word (a multiple of 64)
+    private int base;
+    // Sorted offsets from base while sparse, null once the calendar is a bitmap
+    private char[] offsets;
+    // One bit per day from base once dense, null while sparse
+    private long[] words;
+    private int count;
+
+    /**
+     * Constructor to create an empty calendar.
+     */
+    public VisitCalendar() {
+        this.offsets = new char[2];
+    }
+
+    /**
+     * Adds a day of visit.
+     *
+     * @param day       Epoch day of the visit
+     * @return true if the day was added, false if it was already in the calendar
+     */
+    public synchronized boolean add(int day) {
+        if (words != null) {
+            return setBit(day);
+        }
+        if (count == 0) {
+            base = day;
+        } else if (day < base) {
+            if (!rebase(day)) {
+                toBitmap();
+                return setBit(day);
+            }
+        } else if (day - base > MAX_OFFSET) {
+            toBitmap();
+            return setBit(day);
+        }
+
+        char offset = (char) (day - base);
+        int position = Arrays.binarySearch(offsets, 0, count, offset);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count + (count >> 1) + 1);
+        }
+        System.arraycopy(offsets, position, offsets, position + 1, count - position);
+        offsets[position] = offset;
+        count++;
+
+        // Switch to a bitmap once it takes less memory than the offsets
+        int firstWord = Math.floorDiv(base, 64);
+        int lastWord = Math.floorDiv(base + offsets[count - 1], 64);
+        if ((long) offsets.length * Character.BYTES > (long) (lastWord - firstWord + 1) * Long.BYTES) {
+            toBitmap();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of days visited.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns true if the member visited on the day.
+     *
+     * @param day       Epoch day
+     */
+    public synchronized boolean contains(int day) {
+        return count(day, day) == 1;
+    }
+
+    /**
+     * Returns the number of days visited from one day to another, both included.
+     *
+     * @param fromDay       First epoch day
+     * @param toDay         Last epoch day
+     */
+    public synchronized int count(int fromDay, int toDay) {
+        if (count == 0 || toDay < fromDay) {
+            return 0;
+        }
+        if (words == null) {
+            return offsetPosition(toDay + 1L) - offsetPosition(fromDay);
+        }
+
+        long first = Math.max((long) fromDay - base, 0);
+        long last = Math.min((long) toDay - base, (long) words.length * 64 - 1);
+        if (first > last) {
+            return 0;
+        }
+        int firstWord = (int) (first >>> 6);
+        int lastWord = (int) (last >>> 6);
+        long firstMask = -1L << (first & 63);
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            return Long.bitCount(words[firstWord] & firstMask & lastMask);
+        }
+        int visits = Long.bitCount(words[firstWord] & firstMask) + Long.bitCount(words[lastWord] & lastMask);
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            visits += Long.bitCount(words[i]);
+        }
+        return visits;
+    }
+
+    /**
+     * Returns the last day visited, or MemberDates.NO_DATE if there is none.
+     */
+    public synchronized int lastDay() {
+        if (count == 0) {
+            return MemberDates.NO_DATE;
+        }
+        if (words == null) {
+            return base + offsets[count - 1];
+        }
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (words[i] != 0) {
+                return base + i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+            }
+        }
+        return MemberDates.NO_DATE;
+    }
+
+    /**
+     * Returns the number of days in a row visited up to and including a day,
+     * 0 if the member did not visit on that day.
+     *
+     * @param day       Last epoch day of the streak
+     */
+    public synchronized int streakEndingAt(int day) {
+        if (words == null) {
+            int position = offsetPosition(day);
+            if (position == count || base + offsets[position] != day) {
+                return 0;
+            }
+            int streak = 1;
+            while (position > 0 && offsets[position - 1] == offsets[position] - 1) {
+                position--;
+                streak++;
+            }
+            return streak;
+        }
+
+        long bit = (long) day - base;
+        if (bit < 0 || bit >= (long) words.length * 64) {
+            return 0;
+        }
+        int word = (int) (bit >>> 6);
+        int position = (int) (bit & 63);
+        int streak = 0;
+        while (word >= 0) {
+            // Visited days from the position downwards are the leading ones of the shifted word
+            int run = Long.numberOfLeadingZeros(~(words[word] << (63 - position)));
+            streak += Math.min(run, position + 1);
+            if (run <= position) {
+                break;
+            }
+            word--;
+            position = 63;
+        }
+        return streak;
+    }
+
+    /**
+     * Returns the days visited in order, for saving the calendar.
+     */
+    public synchronized int[] toDays() {
+        int[] days = new int[count];
+        if (words == null) {
+            for (int i = 0; i < count; i++) {
+                days[i] = base + offsets[i];
+            }
+            return days;
+        }
+        int next = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                days[next++] = base + i * 64 + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return days;
+    }
+
+    // Position of the first offset on or after the day
+    private int offsetPosition(long day) {
+        long offset = day - base;
+        if (offset <= 0) {
+            return 0;
+        }
+        if (offset > MAX_OFFSET) {
+            return count;
+        }
+        int position = Arrays.binarySearch(offsets, 0, count, (char) offset);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    // Moves the base back to an earlier day, false if the offsets would not fit
+    private boolean rebase(int day) {
+        int shift = base - day;
+        if ((long) offsets[count - 1] + shift > MAX_OFFSET) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (char) (offsets[i] + shift);
+        }
+        base = day;
+        return true;
+    }
+
+    private void toBitmap() {
+        int firstWord = Math.floorDiv(base, 64);
+        int lastWord = Math.floorDiv(base + offsets[count - 1], 64);
+        long[] bitmap = new long[lastWord - firstWord + 1];
+        int bitmapBase = firstWord * 64;
+        for (int i = 0; i < count; i++) {
+            int bit = base + offsets[i] - bitmapBase;
+            bitmap[bit >>> 6] |= 1L << bit;
+        }
+        base = bitmapBase;
+        words = bitmap;
+        offsets = null;
+    }
+
+    private boolean setBit(int day) {
+        int word = Math.floorDiv(day, 64) - Math.floorDiv(base, 64);
+        if (word < 0) {
+            // Grow at the front for a day before the first word
+            long[] grown = new long[words.length - word];
+            System.arraycopy(words, 0, grown, -word, words.length);
+            words = grown;
+            base = Math.floorDiv(day, 64) * 64;
+            word = 0;
+        } else if (word >= words.length) {
+            words = Arrays.copyOf(words, word + 1);
+        }
+        long mask = 1L << (day - base);
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        count++;
+        return true;
+    }
+}